@@ -0,0 +1,147 @@
+/*
+Copyright (c) 1995-2026 held by the author(s).  All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer
+      in the documentation and/or other materials provided with the
+      distribution.
+    * Neither the names of the Naval Postgraduate School (NPS)
+      Modeling Virtual Environments and Simulation (MOVES) Institute
+      (http://www.nps.edu and https://my.nps.edu/web/moves)
+      nor the names of its contributors may be used to endorse or
+      promote products derived from this software without specific
+      prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+POSSIBILITY OF SUCH DAMAGE.
+*/
+package com.norb.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of equally sized {@link ByteBuffer}s, either heap or direct,
+ * so that busy copy loops can reuse their buffers instead of allocating a new
+ * one on every call.  When the pool is empty a new buffer is allocated (a
+ * miss); when it is full a returned buffer is simply dropped for the garbage
+ * collector.  Instances are thread safe.
+ *
+ * @author <a href="mailto:tdnorbra@nps.edu?subject=com.norb.utils.BufferPool">Terry Norbraten, NPS MOVES</a>
+ */
+public class BufferPool {
+
+    /** 64 KB, the default size of each pooled buffer */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /** The default number of idle buffers a pool will hold on to */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private final int bufferSize;
+    private final boolean direct;
+    private final BlockingQueue<ByteBuffer> idle;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /** Creates a pool of {@link #DEFAULT_CAPACITY} heap buffers of
+     * {@link #DEFAULT_BUFFER_SIZE} bytes each
+     */
+    public BufferPool() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_CAPACITY, false);
+    }
+
+    /**
+     * @param bufferSize the size in bytes of each buffer handed out
+     * @param capacity the maximum number of idle buffers retained
+     * @param direct true for direct buffers, false for heap (array backed)
+     * buffers
+     */
+    public BufferPool(int bufferSize, int capacity, boolean direct) {
+        if (bufferSize <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("bufferSize and capacity must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.direct = direct;
+        idle = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /** @return a cleared buffer, reused from the pool when one is idle */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = idle.poll();
+        if (buffer == null) {
+            misses.incrementAndGet();
+            return direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+        }
+        hits.incrementAndGet();
+        return buffer;
+    }
+
+    /** Returns a buffer to the pool.  Buffers that did not come from a pool of
+     * this shape are ignored, as are any beyond the pool's capacity.
+     * @param buffer the buffer to recycle, may be null
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != bufferSize || buffer.isDirect() != direct) {
+            return;
+        }
+        buffer.clear();
+        idle.offer(buffer);
+    }
+
+    /** @return the size in bytes of each buffer handed out */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /** @return true if this pool hands out direct buffers */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /** @return the number of buffers currently idle in the pool */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /** @return the number of acquisitions satisfied by a pooled buffer */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** @return the number of acquisitions that had to allocate */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** Zeroes the hit and miss counters */
+    public void resetStats() {
+        hits.set(0L);
+        misses.set(0L);
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPool[size=" + bufferSize + ", direct=" + direct
+                + ", idle=" + idle.size() + ", hits=" + hits.get()
+                + ", misses=" + misses.get() + "]";
+    }
+
+} // end class file BufferPool.java
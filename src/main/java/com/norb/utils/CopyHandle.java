@@ -0,0 +1,173 @@
+/*
+Copyright (c) 1995-2026 held by the author(s).  All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer
+      in the documentation and/or other materials provided with the
+      distribution.
+    * Neither the names of the Naval Postgraduate School (NPS)
+      Modeling Virtual Environments and Simulation (MOVES) Institute
+      (http://www.nps.edu and https://my.nps.edu/web/moves)
+      nor the names of its contributors may be used to endorse or
+      promote products derived from this software without specific
+      prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+POSSIBILITY OF SUCH DAMAGE.
+*/
+package com.norb.utils;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Tracks a single copy started with one of the {@link StreamCopier} methods
+ * that take a handle.  Other threads may poll the live byte count and
+ * throughput, or {@link #cancel()} the copy, without blocking the copying
+ * thread.  A cancelled copy stops at the next buffer boundary by throwing an
+ * {@link InterruptedIOException}.  A handle given a {@link Throttle} limits
+ * the rate of its copy.  A handle is meant for one copy only.
+ *
+ * @author <a href="mailto:tdnorbra@nps.edu?subject=com.norb.utils.CopyHandle">Terry Norbraten, NPS MOVES</a>
+ */
+public class CopyHandle {
+
+    private final LongConsumer progress;
+    private final Throttle throttle;
+    private final AtomicLong bytesCopied = new AtomicLong();
+    private volatile boolean cancelled;
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    /** Creates a handle without a progress callback */
+    public CopyHandle() {
+        this(null);
+    }
+
+    /**
+     * @param progress called on the copying thread with the running total of
+     * bytes copied after every buffer, may be null
+     */
+    public CopyHandle(LongConsumer progress) {
+        this(progress, null);
+    }
+
+    /**
+     * @param progress called on the copying thread with the running total of
+     * bytes copied after every buffer, may be null
+     * @param throttle limits the rate of the copy, may be null or shared with
+     * other copies
+     */
+    public CopyHandle(LongConsumer progress, Throttle throttle) {
+        this.progress = progress;
+        this.throttle = throttle;
+    }
+
+    /** @return the throttle limiting this copy, or null */
+    public Throttle getThrottle() {
+        return throttle;
+    }
+
+    /** Requests that the copy stop at the next buffer boundary */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /** @return true if {@link #cancel()} has been called */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** @return true once the copy has started */
+    public boolean isStarted() {
+        return startNanos != 0L;
+    }
+
+    /** @return true once the copy has finished, successfully or not */
+    public boolean isDone() {
+        return endNanos != 0L;
+    }
+
+    /** @return the number of bytes copied so far */
+    public long getBytesCopied() {
+        return bytesCopied.get();
+    }
+
+    /** @return nanoseconds since the copy started, up to its end if done */
+    public long getElapsedNanos() {
+        long start = startNanos;
+        if (start == 0L) {
+            return 0L;
+        }
+        long end = endNanos;
+        return (end == 0L ? System.nanoTime() : end) - start;
+    }
+
+    /** @return the average throughput so far in bytes per second */
+    public double getThroughput() {
+        long elapsed = getElapsedNanos();
+        return elapsed == 0L ? 0.0 : getBytesCopied() * 1e9 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "CopyHandle[bytes=" + getBytesCopied() + ", bytes/s="
+                + (long) getThroughput() + ", cancelled=" + cancelled
+                + ", done=" + isDone() + "]";
+    }
+
+    void start() throws InterruptedIOException {
+        if (startNanos == 0L) {
+            startNanos = System.nanoTime();
+        }
+        checkCancelled();
+    }
+
+    /** @return the largest transfer to make at once, keeping throttled
+     * copies from moving more than a burst between checks
+     */
+    long chunk(long max) {
+        return throttle == null ? max : Math.max(1L, Math.min(max, throttle.getBurst()));
+    }
+
+    void advance(long n) throws InterruptedIOException {
+        if (throttle != null) {
+            throttle.acquire(n);
+        }
+        long total = bytesCopied.addAndGet(n);
+        if (progress != null) {
+            progress.accept(total);
+        }
+        checkCancelled();
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    void checkCancelled() throws InterruptedIOException {
+        if (cancelled) {
+            InterruptedIOException ex = new InterruptedIOException("Copy cancelled");
+            ex.bytesTransferred = (int) Math.min(Integer.MAX_VALUE, bytesCopied.get());
+            throw ex;
+        }
+    }
+
+} // end class file CopyHandle.java
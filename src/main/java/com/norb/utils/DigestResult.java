@@ -0,0 +1,121 @@
+/*
+Copyright (c) 1995-2026 held by the author(s).  All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer
+      in the documentation and/or other materials provided with the
+      distribution.
+    * Neither the names of the Naval Postgraduate School (NPS)
+      Modeling Virtual Environments and Simulation (MOVES) Institute
+      (http://www.nps.edu and https://my.nps.edu/web/moves)
+      nor the names of its contributors may be used to endorse or
+      promote products derived from this software without specific
+      prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+POSSIBILITY OF SUCH DAMAGE.
+*/
+package com.norb.utils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The byte count and digests computed in passing by
+ * {@link StreamCopier#copyWithDigests(java.io.InputStream, java.io.OutputStream, String...)}.
+ * Checksums such as CRC32C are reported as their 4 byte big-endian value.
+ *
+ * @author <a href="mailto:tdnorbra@nps.edu?subject=com.norb.utils.DigestResult">Terry Norbraten, NPS MOVES</a>
+ */
+public class DigestResult {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long bytesCopied;
+    private final Map<String, byte[]> digests;
+
+    DigestResult(long bytesCopied, Map<String, byte[]> digests) {
+        this.bytesCopied = bytesCopied;
+        this.digests = Collections.unmodifiableMap(new LinkedHashMap<>(digests));
+    }
+
+    /** @return the number of bytes copied */
+    public long getBytesCopied() {
+        return bytesCopied;
+    }
+
+    /** @return the algorithm names, in the order they were requested */
+    public Set<String> getAlgorithms() {
+        return digests.keySet();
+    }
+
+    /**
+     * @param algorithm an algorithm name as given to the copy
+     * @return a copy of the digest, or null if it was not computed
+     */
+    public byte[] getDigest(String algorithm) {
+        byte[] digest = digests.get(algorithm);
+        return digest == null ? null : digest.clone();
+    }
+
+    /**
+     * @param algorithm an algorithm name as given to the copy
+     * @return the digest as lower case hex, or null if it was not computed
+     */
+    public String getHexDigest(String algorithm) {
+        byte[] digest = digests.get(algorithm);
+        return digest == null ? null : toHex(digest);
+    }
+
+    /**
+     * @param algorithm an algorithm name as given to the copy
+     * @param expected the digest the data should have
+     * @return true if the digest was computed and equals the expected one
+     */
+    public boolean matches(String algorithm, byte[] expected) {
+        byte[] digest = digests.get(algorithm);
+        return digest != null && Arrays.equals(digest, expected);
+    }
+
+    /**
+     * @param bytes the bytes to format
+     * @return the bytes as lower case hex
+     */
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("bytes=").append(bytesCopied);
+        for (Map.Entry<String, byte[]> entry : digests.entrySet()) {
+            sb.append(", ").append(entry.getKey()).append('=').append(toHex(entry.getValue()));
+        }
+        return sb.toString();
+    }
+
+} // end class file DigestResult.java
@@ -0,0 +1,228 @@
+/*
+Copyright (c) 1995-2026 held by the author(s).  All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer
+      in the documentation and/or other materials provided with the
+      distribution.
+    * Neither the names of the Naval Postgraduate School (NPS)
+      Modeling Virtual Environments and Simulation (MOVES) Institute
+      (http://www.nps.edu and https://my.nps.edu/web/moves)
+      nor the names of its contributors may be used to endorse or
+      promote products derived from this software without specific
+      prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+POSSIBILITY OF SUCH DAMAGE.
+*/
+package com.norb.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Finds groups of files with identical content under a directory, e.g. to
+ * reclaim space taken by duplicate captures or generated outputs.  The work is
+ * staged so that as little as possible is read:
+ * <ol>
+ *   <li>the tree is walked in parallel by {@link FindPath} and files are
+ *   bucketed by size, which costs no reads at all;</li>
+ *   <li>files sharing a size are hashed over their first and last
+ *   {@value #PROBE_SIZE} bytes only;</li>
+ *   <li>files still colliding are hashed in full, in parallel.</li>
+ * </ol>
+ * Empty files and files that can not be read are ignored.  Hard links to the
+ * same file, known by their {@link BasicFileAttributes#fileKey()}, are reported
+ * once, by their first path in sort order, since deleting one frees nothing.
+ *
+ * @author <a href="mailto:tdnorbra@nps.edu?subject=com.norb.utils.DuplicateFinder">Terry Norbraten, NPS MOVES</a>
+ */
+public class DuplicateFinder {
+
+    static final Logger LOG = LogUtils.getLogger(DuplicateFinder.class);
+
+    /** The number of bytes hashed at each end of a file in the second stage */
+    public static final int PROBE_SIZE = 4 * 1024;
+
+    private static final String ALGORITHM = "SHA-256";
+
+    // prevent instantiation of this class
+    private DuplicateFinder() {}
+
+    /**
+     * @param start the directory to search from
+     * @param pattern the glob pattern file names must match, e.g. "*"
+     * @param filter further restricts the search, may be null
+     * @param parallelism the number of worker threads
+     * @return the groups of identical files, each group sorted and holding at
+     * least two files, largest files first
+     * @throws IOException if the search is interrupted
+     */
+    public static List<List<Path>> find(Path start, String pattern, FindPath.Filter filter, int parallelism) throws IOException {
+        final FindPath finder = new FindPath(pattern);
+        // Each size maps a file's key, or its path where it has none, to the
+        // path it is known by
+        final Map<Long, Map<Object, Path>> bySize = new ConcurrentHashMap<>();
+        FindPath.walkParallel(start, parallelism, filter, (path, attrs) -> {
+            if (attrs.isRegularFile() && attrs.size() > 0L && finder.matches(path)) {
+                Object key = attrs.fileKey() != null ? attrs.fileKey() : path;
+                bySize.computeIfAbsent(attrs.size(), k -> new ConcurrentHashMap<>())
+                        .merge(key, path, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+        });
+
+        List<Group> candidates = new ArrayList<>();
+        for (Map.Entry<Long, Map<Object, Path>> entry : bySize.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                candidates.add(new Group(entry.getKey(), new ArrayList<>(entry.getValue().values())));
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Group> probed = pool.submit(() -> regroup(candidates, DuplicateFinder::probeHash)).get();
+
+            // Files no longer than both probes were hashed in full already
+            List<Group> partial = new ArrayList<>();
+            List<Group> identical = new ArrayList<>();
+            for (Group group : probed) {
+                (group.size > 2L * PROBE_SIZE ? partial : identical).add(group);
+            }
+            identical.addAll(pool.submit(() -> regroup(partial, DuplicateFinder::fullHash)).get());
+
+            identical.sort(Comparator.comparingLong((Group group) -> group.size).reversed()
+                    .thenComparing(group -> group.files.get(0)));
+            List<List<Path>> duplicates = new ArrayList<>(identical.size());
+            for (Group group : identical) {
+                duplicates.add(group.files);
+            }
+            return duplicates;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Duplicate search interrupted");
+        } catch (ExecutionException ex) {
+            throw StreamCopier.asIOException(ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Files of one size that may be identical */
+    private static class Group {
+
+        final long size;
+        final List<Path> files;
+
+        Group(long size, List<Path> files) {
+            this.size = size;
+            this.files = files;
+            Collections.sort(files);
+        }
+    }
+
+    /** Splits each group by a hash computed in parallel, keeping only the
+     * resulting groups that still hold more than one file
+     */
+    private static List<Group> regroup(List<Group> groups, Hasher hasher) {
+        return groups.parallelStream()
+                .flatMap(group -> group.files.parallelStream()
+                        .map(path -> new Object[] {path, hash(hasher, path)})
+                        .filter(pair -> pair[1] != null)
+                        .collect(Collectors.groupingBy(pair -> (String) pair[1],
+                                Collectors.mapping(pair -> (Path) pair[0], Collectors.toList())))
+                        .values().stream()
+                        .filter(files -> files.size() > 1)
+                        .map(files -> new Group(group.size, files)))
+                .collect(Collectors.toList());
+    }
+
+    @FunctionalInterface
+    private interface Hasher {
+        String hash(Path file) throws IOException;
+    }
+
+    /** @return the hash, or null if the file could not be read */
+    private static String hash(Hasher hasher, Path file) {
+        try {
+            return hasher.hash(file);
+        } catch (IOException ex) {
+            LOG.debug("Ignoring {}: {}", file, ex.toString());
+            return null;
+        }
+    }
+
+    /** @return the hash of the first and last {@link #PROBE_SIZE} bytes, or of
+     * the whole file if it is no longer than that
+     */
+    private static String probeHash(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, 2L * PROBE_SIZE));
+            if (size <= 2L * PROBE_SIZE) {
+                FileIO.readFully(in, buffer, 0L);
+            } else {
+                buffer.limit(PROBE_SIZE);
+                FileIO.readFully(in, buffer, 0L);
+                buffer.limit(2 * PROBE_SIZE);
+                FileIO.readFully(in, buffer, size - PROBE_SIZE);
+            }
+            buffer.flip();
+            digest.update(buffer);
+        }
+        return DigestResult.toHex(digest.digest());
+    }
+
+    /** @return the hash of the whole file */
+    private static String fullHash(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return StreamCopier.copyWithDigests(in, OutputStream.nullOutputStream(), ALGORITHM).getHexDigest(ALGORITHM);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+} // end class file DuplicateFinder.java
@@ -1,97 +1,752 @@
-/*
-Copyright (c) 1995-2012 held by the author(s).  All rights reserved.
-
-Redistribution and use in source and binary forms, with or without
-modification, are permitted provided that the following conditions
-are met:
-
-    * Redistributions of source code must retain the above copyright
-      notice, this list of conditions and the following disclaimer.
-    * Redistributions in binary form must reproduce the above copyright
-      notice, this list of conditions and the following disclaimer
-      in the documentation and/or other materials provided with the
-      distribution.
-    * Neither the names of the Naval Postgraduate School (NPS)
-      Modeling Virtual Environments and Simulation (MOVES) Institute
-      (http://www.nps.edu and http://www.MovesInstitute.org)
-      nor the names of its contributors may be used to endorse or
-      promote products derived from this software without specific
-      prior written permission.
-
-THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
-"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
-LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
-FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
-COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
-INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
-BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
-LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
-CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
-LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
-ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
-POSSIBILITY OF SUCH DAMAGE.
-*/
-package com.norb.utils;
-
-import java.io.*;
-
-/** <p>Taken from Java Cookbook, by Ian F. Darwin
- * MOVES Institute
- * Naval Postgraduate School, Monterey, CA
- * www.nps.edu</p>
- *
- * @author Mike Bailey
- * @since Mar 15, 2006 1:10:37 PM
- * @version $Id: FileIO.java 502 2013-01-08 23:11:09Z tdnorbra $
- */
-public class FileIO {
-
-    /**
-     * Copies a file from one location to another directory
-     * @param infile file to copy
-     * @param outfile file name/path to copy to
-     * @param close flag to indicate closing the streams
-     * @throws java.io.IOException if something goes wrong
-     */
-    public static void copyFile(File infile, File outfile, boolean close) throws IOException {
-        if (close) {
-            try (Reader r = new BufferedReader(new FileReader(infile)); Writer w = new PrintWriter(new BufferedWriter(new FileWriter(outfile)))) {
-                copyFile(r, w);
-            }
-        } else
-            copyFile(new BufferedReader(new FileReader(infile)), new PrintWriter(new BufferedWriter(new FileWriter(outfile))));
-    }
-
-    /**
-     * Copies a file from one location to another directory
-     * @param is the input stream reader of the inFile
-     * @param os the output stream that will write to the copied file
-     * @throws java.io.IOException if something goes wrong
-     */
-    public static void copyFile(final Reader is, final Writer os) throws IOException {
-        try (is) {
-            synchronized (is) {
-                try (os) {
-                    synchronized (os) {
-                        String msg;
-                        while ((msg = ((BufferedReader) is).readLine()) != null) {
-                            os.write(msg + "\n");
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-    /**
-     * Move a file from one location (directory) to another
-     * @param from the file to move
-     * @param to the location (path/name) to move to
-     * @throws IOException if something goes wrong
-     */
-    public static void moveFile(File from, File to) throws IOException {
-        copyFile(from, to, true);
-        from.delete();
-    }
-
-} // end class file FileIO.java
+/*
+Copyright (c) 1995-2012 held by the author(s).  All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer
+      in the documentation and/or other materials provided with the
+      distribution.
+    * Neither the names of the Naval Postgraduate School (NPS)
+      Modeling Virtual Environments and Simulation (MOVES) Institute
+      (http://www.nps.edu and http://www.MovesInstitute.org)
+      nor the names of its contributors may be used to endorse or
+      promote products derived from this software without specific
+      prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+POSSIBILITY OF SUCH DAMAGE.
+*/
+package com.norb.utils;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** <p>Taken from Java Cookbook, by Ian F. Darwin
+ * MOVES Institute
+ * Naval Postgraduate School, Monterey, CA
+ * www.nps.edu</p>
+ *
+ * @author Mike Bailey
+ * @since Mar 15, 2006 1:10:37 PM
+ * @version $Id: FileIO.java 502 2013-01-08 23:11:09Z tdnorbra $
+ */
+public class FileIO {
+
+    /**
+     * Copies a file byte for byte, replacing any existing target.  The bytes
+     * are moved by {@link FileChannel#transferTo(long, long,
+     * java.nio.channels.WritableByteChannel)} so they never have to be
+     * decoded or pass through a user space buffer.  Files that report no size,
+     * e.g. those under /proc, are still read through to their end.  As with
+     * {@link Files#copy(Path, Path, java.nio.file.CopyOption...)}, copying a
+     * file onto itself does nothing.
+     * @param infile file to copy
+     * @param outfile file name/path to copy to
+     * @return the number of bytes copied
+     * @throws java.io.IOException if something goes wrong
+     */
+    public static long copyFile(File infile, File outfile) throws IOException {
+        if (isSameFile(infile.toPath(), outfile.toPath())) {
+            return infile.length();
+        }
+        try (FileChannel in = FileChannel.open(infile.toPath(), StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(outfile.toPath(), StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return StreamCopier.copy(in, out);
+        }
+    }
+
+    /**
+     * Copies a file byte for byte, replacing any existing target, computing
+     * digests of the content on the way through.  A file copied onto itself
+     * is only digested.
+     * @param infile file to copy
+     * @param outfile file name/path to copy to
+     * @param algorithms the digests to compute, see
+     * {@link StreamCopier#copyWithDigests(InputStream, OutputStream, String...)}
+     * @return the number of bytes copied and the requested digests
+     * @throws java.io.IOException if something goes wrong
+     */
+    public static DigestResult copyFileWithDigests(File infile, File outfile, String... algorithms) throws IOException {
+        if (isSameFile(infile.toPath(), outfile.toPath())) {
+
+            // Only digest the file; opening the target would truncate it
+            try (InputStream in = new FileInputStream(infile)) {
+                return StreamCopier.copyWithDigests(in, OutputStream.nullOutputStream(), algorithms);
+            }
+        }
+        try (InputStream in = new FileInputStream(infile); OutputStream out = new FileOutputStream(outfile)) {
+            return StreamCopier.copyWithDigests(in, out, algorithms);
+        }
+    }
+
+    /**
+     * Copies a file from one location to another directory
+     * @param infile file to copy
+     * @param outfile file name/path to copy to
+     * @param close no longer used, both files are always closed
+     * @throws java.io.IOException if something goes wrong
+     * @deprecated this is now a byte exact copy, use {@link #copyFile(File, File)},
+     * or {@link #copyTextFile(File, File)} for the former line by line copy
+     */
+    @Deprecated
+    public static void copyFile(File infile, File outfile, boolean close) throws IOException {
+        copyFile(infile, outfile);
+    }
+
+    /**
+     * Copies a text file line by line in the platform's default charset,
+     * terminating every line, including the last, with a single '\n'.  Use
+     * {@link #copyFile(File, File)} unless that conversion is wanted.
+     * @param infile file to copy
+     * @param outfile file name/path to copy to
+     * @throws java.io.IOException if something goes wrong
+     */
+    public static void copyTextFile(File infile, File outfile) throws IOException {
+        copyFile(new BufferedReader(new FileReader(infile)), new PrintWriter(new BufferedWriter(new FileWriter(outfile))));
+    }
+
+    /**
+     * Copies text line by line from one location to another directory
+     * @param is the input stream reader of the inFile
+     * @param os the output stream that will write to the copied file
+     * @throws java.io.IOException if something goes wrong
+     */
+    public static void copyFile(final Reader is, final Writer os) throws IOException {
+        try (is) {
+            synchronized (is) {
+                try (os) {
+                    synchronized (os) {
+                        String msg;
+                        while ((msg = ((BufferedReader) is).readLine()) != null) {
+                            os.write(msg + "\n");
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** 64 MB, the default range copied by each parallel copy task */
+    public static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+
+    /** Size of the direct buffers used by parallel copy tasks */
+    private static final int PARALLEL_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Copies a large file with {@link #DEFAULT_CHUNK_SIZE} ranges on as many
+     * workers as there are processors.
+     * @param source file to copy
+     * @param target file name/path to copy to
+     * @return the number of bytes copied
+     * @throws java.io.IOException if something goes wrong
+     * @see #copyFileParallel(Path, Path, long, int)
+     */
+    public static long copyFileParallel(Path source, Path target) throws IOException {
+        return copyFileParallel(source, target, DEFAULT_CHUNK_SIZE,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Copies a file byte for byte by splitting it into ranges that are copied
+     * concurrently with positional reads and writes, replacing any existing
+     * target.  The target is extended to its final length before any range
+     * is written.  Worthwhile for very large files on storage that serves
+     * several outstanding requests at once (NVMe, RAID); files no bigger than
+     * one chunk, or copied onto themselves, are handed to
+     * {@link #copyFile(File, File)}.
+     * @param source file to copy
+     * @param target file name/path to copy to
+     * @param chunkSize the number of bytes in each range
+     * @param parallelism the number of ranges copied at once
+     * @return the number of bytes copied
+     * @throws java.io.IOException if something goes wrong
+     * @see #contentEquals(Path, Path)
+     */
+    public static long copyFileParallel(Path source, Path target, long chunkSize, int parallelism) throws IOException {
+        if (chunkSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("chunkSize and parallelism must be positive");
+        }
+        if (Files.size(source) <= chunkSize || isSameFile(source, target)) {
+            return copyFile(source.toFile(), target.toFile());
+        }
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final long size = in.size();
+            out.write(ByteBuffer.allocate(1), size - 1);
+
+            BufferPool buffers = new BufferPool(PARALLEL_BUFFER_SIZE, parallelism, true);
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (long start = 0L; start < size; start += chunkSize) {
+                final long from = start;
+                final long to = Math.min(size, start + chunkSize);
+                tasks.add(() -> {
+                    copyRange(in, out, from, to, buffers);
+                    return null;
+                });
+            }
+            ForkJoinPool workers = new ForkJoinPool(parallelism);
+            try {
+                for (Future<Void> task : workers.invokeAll(tasks)) {
+                    task.get();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Parallel copy interrupted");
+            } catch (ExecutionException ex) {
+                throw StreamCopier.asIOException(ex.getCause());
+            } finally {
+                workers.shutdownNow();
+            }
+            return size;
+        }
+    }
+
+    private static void copyRange(FileChannel in, FileChannel out, long from, long to, BufferPool buffers) throws IOException {
+        ByteBuffer buffer = buffers.acquire();
+        try {
+            long position = from;
+            while (position < to) {
+                buffer.clear();
+                if (to - position < buffer.capacity()) {
+                    buffer.limit((int) (to - position));
+                }
+                int n = in.read(buffer, position);
+                if (n < 0) {
+                    throw new EOFException("Source truncated during copy at " + position);
+                }
+                buffer.flip();
+                long at = position;
+                while (buffer.hasRemaining()) {
+                    at += out.write(buffer, at);
+                }
+                position += n;
+            }
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    /** 256 MB, the default size of each mapped window */
+    public static final long DEFAULT_MAP_WINDOW = 256L * 1024 * 1024;
+
+    /** Receives successive read only windows of a file from
+     * {@link FileIO#readMapped(Path, long, MappedWindowVisitor)}
+     */
+    @FunctionalInterface
+    public interface MappedWindowVisitor {
+
+        /**
+         * The window is unmapped as soon as this method returns, so neither
+         * it nor any view or slice of it may be kept and used afterwards.
+         * @param window the mapped bytes, positioned at zero
+         * @param offset the offset in the file of the window's first byte
+         * @throws IOException to abandon the read
+         */
+        void visit(MappedByteBuffer window, long offset) throws IOException;
+    }
+
+    /** sun.misc.Unsafe.theUnsafe, if it could be reached */
+    private static final Object UNSAFE;
+
+    /** sun.misc.Unsafe.invokeCleaner(ByteBuffer), if it could be reached */
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    /**
+     * Maps a file in read only windows of {@link #DEFAULT_MAP_WINDOW} bytes.
+     * @param file the file to read
+     * @param visitor receives each window in file order
+     * @throws IOException if something goes wrong
+     * @see #readMapped(Path, long, MappedWindowVisitor)
+     */
+    public static void readMapped(Path file, MappedWindowVisitor visitor) throws IOException {
+        readMapped(file, DEFAULT_MAP_WINDOW, visitor);
+    }
+
+    /**
+     * Maps a file in consecutive read only windows of at most
+     * <code>windowSize</code> bytes and hands each to the visitor, unmapping
+     * it straight after so that address space does not grow with the file.
+     * @param file the file to read
+     * @param windowSize the largest window mapped at once
+     * @param visitor receives each window in file order
+     * @throws IOException if something goes wrong
+     */
+    public static void readMapped(Path file, long windowSize, MappedWindowVisitor visitor) throws IOException {
+        if (windowSize <= 0 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("windowSize must be between 1 and " + Integer.MAX_VALUE);
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            for (long offset = 0L; offset < size; offset += windowSize) {
+                MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min(windowSize, size - offset));
+                try {
+                    visitor.visit(window, offset);
+                } finally {
+                    unmap(window);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies a file by mapping the source in windows of
+     * {@link #DEFAULT_MAP_WINDOW} bytes.
+     * @param source file to copy
+     * @param target file name/path to copy to
+     * @return the number of bytes copied
+     * @throws IOException if something goes wrong
+     * @see #copyFileMapped(Path, Path, long)
+     */
+    public static long copyFileMapped(Path source, Path target) throws IOException {
+        return copyFileMapped(source, target, DEFAULT_MAP_WINDOW);
+    }
+
+    /**
+     * Copies a file by mapping the source in windows and writing each window
+     * to the target, replacing any existing target.  An alternative to
+     * {@link #copyFile(File, File)} where channel transfers are unavailable
+     * or slow.  Copying a file onto itself does nothing.
+     * @param source file to copy
+     * @param target file name/path to copy to
+     * @param windowSize the largest window of the source mapped at once
+     * @return the number of bytes copied
+     * @throws IOException if something goes wrong
+     */
+    public static long copyFileMapped(Path source, Path target, long windowSize) throws IOException {
+        if (isSameFile(source, target)) {
+            return Files.size(source);
+        }
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            readMapped(source, windowSize, (window, offset) -> {
+                while (window.hasRemaining()) {
+                    out.write(window);
+                }
+            });
+            return out.size();
+        }
+    }
+
+    /**
+     * Releases a mapping now rather than whenever the buffer is garbage
+     * collected.  Does nothing if the JDK does not allow it.  The buffer must
+     * not be touched again afterwards.
+     * @param buffer a mapped buffer that is no longer needed
+     */
+    static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            // left for the garbage collector
+        }
+    }
+
+    /** 64 KB, the default block size of a delta copy */
+    public static final int DEFAULT_DELTA_BLOCK = 64 * 1024;
+
+    /**
+     * Brings a target up to date with the source by rewriting only the
+     * {@link #DEFAULT_DELTA_BLOCK} sized blocks that differ.
+     * @param source file to copy
+     * @param target file to update
+     * @return the number of bytes actually written to the target
+     * @throws IOException if something goes wrong
+     * @see #copyFileDelta(Path, Path, int)
+     */
+    public static long copyFileDelta(Path source, Path target) throws IOException {
+        return copyFileDelta(source, target, DEFAULT_DELTA_BLOCK);
+    }
+
+    /**
+     * Brings an existing target up to date with the source by rewriting only
+     * the blocks that differ, then truncating or extending the target to the
+     * source's length.  Cheap for large, mostly unchanged files that are
+     * synchronized repeatedly; a missing target is simply created.
+     * @param source file to copy
+     * @param target file to update
+     * @param blockSize the granularity, in bytes, of comparison and rewrite
+     * @return the number of bytes actually written to the target
+     * @throws IOException if something goes wrong
+     */
+    public static long copyFileDelta(Path source, Path target, int blockSize) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(target, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+            long size = in.size();
+            long oldSize = out.size();
+            ByteBuffer src = ByteBuffer.allocateDirect(blockSize);
+            ByteBuffer dst = ByteBuffer.allocateDirect(blockSize);
+            long written = 0L;
+            for (long position = 0L; position < size; position += blockSize) {
+                src.clear();
+                readFully(in, src, position);
+                src.flip();
+                if (position < oldSize) {
+                    dst.clear();
+                    dst.limit(src.limit());
+                    readFully(out, dst, position);
+                    dst.flip();
+                    if (src.equals(dst)) {
+                        continue;
+                    }
+                }
+                long at = position;
+                while (src.hasRemaining()) {
+                    int n = out.write(src, at);
+                    at += n;
+                    written += n;
+                }
+            }
+            if (oldSize > size) {
+                out.truncate(size);
+            }
+            return written;
+        }
+    }
+
+    /** @return true if the target exists and is the very file the source is,
+     * which opening it for writing would truncate before it could be read
+     */
+    private static boolean isSameFile(Path source, Path target) throws IOException {
+        return Files.exists(target) && Files.isSameFile(source, target);
+    }
+
+    /** Reads from a position until the buffer is full or the channel is
+     * exhausted
+     */
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int n;
+        while (buffer.hasRemaining() && (n = channel.read(buffer, position)) >= 0) {
+            position += n;
+        }
+    }
+
+    /**
+     * Compares two files byte for byte, e.g. to verify a copy.
+     * @param a one file
+     * @param b the other file
+     * @return true if both files have the same length and content
+     * @throws java.io.IOException if something goes wrong
+     */
+    public static boolean contentEquals(Path a, Path b) throws IOException {
+        try (FileChannel ca = FileChannel.open(a, StandardOpenOption.READ);
+                FileChannel cb = FileChannel.open(b, StandardOpenOption.READ)) {
+            if (ca.size() != cb.size()) {
+                return false;
+            }
+            ByteBuffer ba = ByteBuffer.allocateDirect(PARALLEL_BUFFER_SIZE);
+            ByteBuffer bb = ByteBuffer.allocateDirect(PARALLEL_BUFFER_SIZE);
+            while (true) {
+                ba.clear();
+                bb.clear();
+                int na = fill(ca, ba);
+                int nb = fill(cb, bb);
+                if (na != nb) {
+                    return false;
+                }
+                if (na <= 0) {
+                    return true;
+                }
+                ba.flip();
+                bb.flip();
+                if (!ba.equals(bb)) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    /** Reads until the buffer is full or the channel is exhausted */
+    private static int fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int total = 0;
+        int n;
+        while (buffer.hasRemaining() && (n = channel.read(buffer)) >= 0) {
+            total += n;
+        }
+        return total;
+    }
+
+    /** Totals reported by {@link #copyTree(Path, Path, int)} and
+     * {@link #mirror(Path, Path, int)}
+     */
+    public static class TreeCopyStats {
+
+        private final AtomicLong files = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong deleted = new AtomicLong();
+        private volatile long elapsedNanos;
+
+        /** @return the number of files copied */
+        public long getFiles() {
+            return files.get();
+        }
+
+        /** @return the number of bytes copied */
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        /** @return the number of files left alone because they were current */
+        public long getSkipped() {
+            return skipped.get();
+        }
+
+        /** @return the number of target entries removed by a mirror */
+        public long getDeleted() {
+            return deleted.get();
+        }
+
+        /** @return the wall clock time taken in milliseconds */
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return "files=" + getFiles() + ", bytes=" + getBytes() + ", skipped="
+                    + getSkipped() + ", deleted=" + getDeleted() + ", elapsed="
+                    + getElapsedMillis() + " ms";
+        }
+    }
+
+    /**
+     * Copies a directory tree into another, creating the target as needed.
+     * The source is walked once while up to <code>parallelism</code> files are
+     * copied concurrently.  A file is skipped when the target already holds
+     * one with the same size and last modified time; copied files are given
+     * the source's last modified time so the next copy skips them.
+     * @param source the root of the tree to copy
+     * @param target the directory to copy into
+     * @param parallelism the maximum number of files copied at once
+     * @return totals for the copy
+     * @throws IOException if something goes wrong
+     */
+    public static TreeCopyStats copyTree(Path source, Path target, int parallelism) throws IOException {
+        return copyTree(source, target, parallelism, false);
+    }
+
+    /**
+     * As {@link #copyTree(Path, Path, int)}, then deletes anything under the
+     * target that has no counterpart under the source, so that the target
+     * ends up an exact replica.
+     * @param source the root of the tree to copy
+     * @param target the directory to mirror into
+     * @param parallelism the maximum number of files copied at once
+     * @return totals for the copy
+     * @throws IOException if something goes wrong
+     */
+    public static TreeCopyStats mirror(Path source, Path target, int parallelism) throws IOException {
+        return copyTree(source, target, parallelism, true);
+    }
+
+    private static TreeCopyStats copyTree(final Path source, final Path target, int parallelism, boolean mirror) throws IOException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        final long start = System.nanoTime();
+        final TreeCopyStats stats = new TreeCopyStats();
+        final List<Future<?>> pending = new ArrayList<>();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "FileIO-copyTree");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(counterpart(source, target, dir));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    final Path dest = counterpart(source, target, file);
+                    if (isCurrent(dest, attrs)) {
+                        stats.skipped.incrementAndGet();
+                    } else if (attrs.isRegularFile()) {
+                        pending.add(workers.submit(() -> {
+                            long n = copyFile(file.toFile(), dest.toFile());
+                            Files.setLastModifiedTime(dest, attrs.lastModifiedTime());
+                            stats.files.incrementAndGet();
+                            stats.bytes.addAndGet(n);
+                            return null;
+                        }));
+                    } else {
+                        Files.copy(file, dest, StandardCopyOption.REPLACE_EXISTING,
+                                StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                        stats.files.incrementAndGet();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            for (Future<?> task : pending) {
+                task.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Tree copy interrupted");
+        } catch (ExecutionException ex) {
+            throw StreamCopier.asIOException(ex.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+        if (mirror) {
+            Files.walkFileTree(target, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (!Files.exists(counterpart(target, source, file), LinkOption.NOFOLLOW_LINKS)) {
+                        Files.delete(file);
+                        stats.deleted.incrementAndGet();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    if (exc != null) {
+                        throw exc;
+                    }
+                    if (!Files.exists(counterpart(target, source, dir), LinkOption.NOFOLLOW_LINKS)) {
+                        Files.delete(dir);
+                        stats.deleted.incrementAndGet();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        stats.elapsedNanos = System.nanoTime() - start;
+        return stats;
+    }
+
+    /** @return the path under <code>toRoot</code> that corresponds to
+     * <code>path</code> under <code>fromRoot</code>
+     */
+    private static Path counterpart(Path fromRoot, Path toRoot, Path path) {
+        return toRoot.resolve(fromRoot.relativize(path).toString());
+    }
+
+    /** @return true if <code>dest</code> has the size and last modified time
+     * (to the millisecond) of the source described by <code>attrs</code>
+     */
+    private static boolean isCurrent(Path dest, BasicFileAttributes attrs) throws IOException {
+        BasicFileAttributes destAttrs;
+        try {
+            destAttrs = Files.readAttributes(dest, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException ex) {
+            return false;
+        }
+        return destAttrs.size() == attrs.size()
+                && destAttrs.lastModifiedTime().toMillis() == attrs.lastModifiedTime().toMillis();
+    }
+
+    /** How {@link #moveFile(File, File)} relocated a file */
+    public enum MoveStrategy {
+
+        /** renamed in place, no data was copied */
+        RENAME,
+
+        /** copied to another file store, then the source was deleted */
+        COPY_DELETE
+    }
+
+    /**
+     * Move a file from one location (directory) to another, replacing any
+     * existing target.  An atomic rename is tried first, which costs the same
+     * regardless of the file's size.  Only when the target is on a different
+     * file store is the file copied with {@link #copyFile(File, File)} and the
+     * source deleted.
+     * @param from the file to move
+     * @param to the location (path/name) to move to
+     * @return the strategy that was used
+     * @throws IOException if something goes wrong, including failure to
+     * delete the source after a copy
+     */
+    public static MoveStrategy moveFile(File from, File to) throws IOException {
+        Path source = from.toPath();
+        Path target = to.toPath();
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            return MoveStrategy.RENAME;
+        } catch (AtomicMoveNotSupportedException ex) {
+            // fall through to a plain rename or a copy
+        }
+        Path targetDir = target.toAbsolutePath().getParent();
+        if (targetDir == null || Files.getFileStore(source).equals(Files.getFileStore(targetDir))) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            return MoveStrategy.RENAME;
+        }
+        copyFile(from, to);
+        Files.delete(source);
+        return MoveStrategy.COPY_DELETE;
+    }
+
+} // end class file FileIO.java
@@ -2,8 +2,38 @@ package com.norb.utils;
 
 import java.io.*;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.nio.file.FileVisitResult.*;
 
@@ -26,24 +56,180 @@ import static java.nio.file.FileVisitResult.*;
  */
 public class FindPath extends SimpleFileVisitor<Path> {
 
+    /** Restricts a search by depth, excluded directories, size, last
+     * modified time and type.  Excluded directories and directories at the
+     * maximum depth are pruned, i.e. none of their entries are read or
+     * stat'ed.  The other criteria only decide which entries may match; they
+     * do not stop a directory from being searched.  Setters return the filter
+     * so they may be chained.
+     */
+    public static class Filter {
+
+        /** The kinds of entry a search may report */
+        public enum Type {
+            FILE, DIRECTORY, SYMLINK, OTHER;
+
+            /**
+             * @param attrs the attributes of an entry, read without following
+             * links
+             * @return the type of the entry
+             */
+            public static Type of(BasicFileAttributes attrs) {
+                return attrs.isSymbolicLink() ? SYMLINK
+                        : attrs.isDirectory() ? DIRECTORY
+                        : attrs.isRegularFile() ? FILE : OTHER;
+            }
+        }
+
+        private int maxDepth = Integer.MAX_VALUE;
+        private final List<PathMatcher> excludedDirs = new ArrayList<>();
+        private long minSize = 0L;
+        private long maxSize = Long.MAX_VALUE;
+        private long modifiedFrom = Long.MIN_VALUE;
+        private long modifiedTo = Long.MAX_VALUE;
+        private Set<Type> types = EnumSet.allOf(Type.class);
+
+        /**
+         * @param maxDepth how many levels below the starting directory to
+         * search, 0 meaning the starting directory alone
+         * @return this filter
+         */
+        public Filter maxDepth(int maxDepth) {
+            if (maxDepth < 0) {
+                throw new IllegalArgumentException("maxDepth must not be negative");
+            }
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        /**
+         * @param globs directory names, e.g. ".git", "target" or
+         * "node_modules", whose subtrees are never searched
+         * @return this filter
+         */
+        public Filter excludeDirs(String... globs) {
+            for (String glob : globs) {
+                excludedDirs.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+            }
+            return this;
+        }
+
+        /**
+         * @param min the smallest size in bytes of a matching file
+         * @param max the largest size in bytes of a matching file
+         * @return this filter
+         */
+        public Filter size(long min, long max) {
+            minSize = min;
+            maxSize = max;
+            return this;
+        }
+
+        /**
+         * @param from the earliest last modified time, in milliseconds, of a
+         * matching entry
+         * @param to the latest last modified time, in milliseconds, of a
+         * matching entry
+         * @return this filter
+         */
+        public Filter modified(long from, long to) {
+            modifiedFrom = from;
+            modifiedTo = to;
+            return this;
+        }
+
+        /**
+         * @param first a kind of entry that may match
+         * @param rest other kinds of entry that may match
+         * @return this filter
+         */
+        public Filter types(Type first, Type... rest) {
+            types = EnumSet.of(first, rest);
+            return this;
+        }
+
+        /** @return how many levels below the starting directory to search */
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        /**
+         * @param dir a directory below the starting directory
+         * @return true if the directory's name is excluded
+         */
+        public boolean isExcluded(Path dir) {
+            Path name = dir.getFileName();
+            if (name != null) {
+                for (PathMatcher excluded : excludedDirs) {
+                    if (excluded.matches(name)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @param attrs the attributes of an entry, read without following links
+         * @return true if the entry's type, size (for regular files) and last
+         * modified time are acceptable
+         */
+        public boolean accept(BasicFileAttributes attrs) {
+            Type type = Type.of(attrs);
+            if (!types.contains(type)) {
+                return false;
+            }
+            if (type == Type.FILE && (attrs.size() < minSize || attrs.size() > maxSize)) {
+                return false;
+            }
+            long modified = attrs.lastModifiedTime().toMillis();
+            return modified >= modifiedFrom && modified <= modifiedTo;
+        }
+    }
+
     private final PathMatcher matcher;
+    private final Filter filter;
+    private final List<Path> matches = new ArrayList<>();
     private int numMatches = 0;
+    private int depth = 0;
     private Path file;
 
     public FindPath(String pattern) {
+        this(pattern, null);
+    }
+
+    /** When used as a visitor, excluded directories and those at the
+     * filter's maximum depth are answered with SKIP_SUBTREE.
+     *
+     * @param pattern the glob pattern to match names against
+     * @param filter further restricts the search, may be null
+     */
+    public FindPath(String pattern, Filter filter) {
         super();
         matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        this.filter = filter;
+    }
+
+    /** Compares the glob pattern against a file or directory name without
+     * recording or reporting a match.
+     *
+     * @param file the Path whose name is compared against the glob pattern
+     * @return true if the name of the file matches
+     */
+    public boolean matches(Path file) {
+        Path name = file.getFileName();
+        return name != null && matcher.matches(name);
     }
 
     /** Compares the glob pattern against the file or directory name.
      *
      * @param file the Path to compare against the glob pattern
      */
-    private void find(Path file) {
-        Path name = file.getFileName();
-        if (name != null && matcher.matches(name)) {
+    private void find(Path file, BasicFileAttributes attrs) {
+        if (matches(file) && (filter == null || filter.accept(attrs))) {
             numMatches++;
             System.out.println("Success! found: " + file);
+            matches.add(file);
             this.file = file;
         }
     }
@@ -57,11 +243,21 @@ public class FindPath extends SimpleFileVisitor<Path> {
         return file;
     }
 
+    /** @return every Path matched by this visitor so far, in visiting order */
+    public List<Path> getMatches() {
+        return Collections.unmodifiableList(matches);
+    }
+
+    /** @return the number of Paths matched by this visitor so far */
+    public int getNumMatches() {
+        return numMatches;
+    }
+
     // Invoke the pattern matching
     // method on each file.
     @Override
     public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-        find(file);
+        find(file, attrs);
         return CONTINUE;
     }
 
@@ -69,7 +265,24 @@ public class FindPath extends SimpleFileVisitor<Path> {
     // method on each directory.
     @Override
     public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-        find(dir);
+        if (filter != null) {
+            if (depth > 0 && filter.isExcluded(dir)) {
+                return SKIP_SUBTREE;
+            }
+            find(dir, attrs);
+            if (depth == filter.getMaxDepth()) {
+                return SKIP_SUBTREE;
+            }
+        } else {
+            find(dir, attrs);
+        }
+        depth++;
+        return CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+        depth--;
         return CONTINUE;
     }
 
@@ -79,6 +292,683 @@ public class FindPath extends SimpleFileVisitor<Path> {
         return CONTINUE;
     }
 
+    /** Lazily finds every file or directory under, and including, the
+     * starting directory whose name matches the glob pattern.  Directories
+     * are only opened as the stream is consumed, so short circuiting
+     * operations such as <code>findFirst()</code> or <code>limit(n)</code>
+     * stop the traversal at once.  Matches come in the same depth first order
+     * as {@link Files#walkFileTree(Path, FileVisitor)} visits them; symbolic
+     * links are not followed and unreadable directories are skipped.  Nothing
+     * is printed.  The stream holds open directory handles, so close it, e.g.
+     * with try-with-resources.
+     *
+     * @param start the directory to search from
+     * @param pattern the glob pattern to match names against
+     * @return a lazily populated stream of the matches
+     */
+    public static Stream<Path> stream(Path start, String pattern) {
+        return stream(start, pattern, null);
+    }
+
+    /** As {@link #stream(Path, String)}, restricted by a filter whose pruned
+     * directories are never opened.
+     *
+     * @param start the directory to search from
+     * @param pattern the glob pattern to match names against
+     * @param filter further restricts the search, may be null
+     * @return a lazily populated stream of the matches
+     */
+    public static Stream<Path> stream(Path start, String pattern, Filter filter) {
+        final FindPath finder = new FindPath(pattern);
+        final LazyWalk walk = new LazyWalk(start, filter, (path, attrs) -> finder.matches(path)
+                && (filter == null || filter.accept(attrs)));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(walk,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(walk::close);
+    }
+
+    /** A depth first walk that opens each directory only when it is reached
+     * and returns the entries accepted by a predicate
+     */
+    private static class LazyWalk implements Iterator<Path> {
+
+        private final Deque<DirectoryStream<Path>> open = new ArrayDeque<>();
+        private final Deque<Iterator<Path>> entries = new ArrayDeque<>();
+        private final Filter filter;
+        private final BiPredicate<Path, BasicFileAttributes> accept;
+        private Path start;
+        private Path next;
+
+        LazyWalk(Path start, Filter filter, BiPredicate<Path, BasicFileAttributes> accept) {
+            this.start = start;
+            this.filter = filter;
+            this.accept = accept;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public Path next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Path path = next;
+            next = null;
+            return path;
+        }
+
+        private Path advance() {
+            if (start != null) {
+                Path path = start;
+                start = null;
+                if (visit(path, 0)) {
+                    return path;
+                }
+            }
+            while (!entries.isEmpty()) {
+                Path entry;
+                try {
+                    Iterator<Path> current = entries.peek();
+                    if (!current.hasNext()) {
+                        ascend();
+                        continue;
+                    }
+                    entry = current.next();
+                } catch (DirectoryIteratorException ex) {
+                    ascend();
+                    continue;
+                }
+                if (visit(entry, entries.size())) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        /** Stats an entry once, descending into it if it is a directory that
+         * is not pruned
+         *
+         * @return true if the entry is to be returned
+         */
+        private boolean visit(Path path, int depth) {
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException ex) {
+                return false;
+            }
+            if (attrs.isDirectory()) {
+                if (depth > 0 && filter != null && filter.isExcluded(path)) {
+                    return false;
+                }
+                if (filter == null || depth < filter.getMaxDepth()) {
+                    descend(path);
+                }
+            }
+            return accept.test(path, attrs);
+        }
+
+        private void descend(Path dir) {
+            try {
+                DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+                open.push(stream);
+                entries.push(stream.iterator());
+            } catch (IOException ex) {
+                // unreadable, skip it as visitFileFailed would
+            }
+        }
+
+        private void ascend() {
+            entries.pop();
+            try {
+                open.pop().close();
+            } catch (IOException ex) {
+                // nothing more to read from it anyway
+            }
+        }
+
+        void close() {
+            while (!entries.isEmpty()) {
+                ascend();
+            }
+            start = null;
+            next = null;
+        }
+    }
+
+    /** Finds every file or directory under, and including, the starting
+     * directory whose name matches the glob pattern, traversing
+     * subdirectories concurrently on a work stealing ForkJoinPool.  Each
+     * directory is listed by its own task, so network mounts and very large
+     * trees are searched with many outstanding requests rather than one.
+     * Symbolic links are not followed and directories that can not be read
+     * are skipped.  Nothing is printed.
+     *
+     * @param start the directory to search from
+     * @param pattern the glob pattern to match names against
+     * @param parallelism the number of worker threads
+     * @return the matches, in no particular order
+     * @throws IOException if the search is interrupted
+     */
+    public static List<Path> findParallel(Path start, String pattern, int parallelism) throws IOException {
+        return findParallel(start, pattern, parallelism, null);
+    }
+
+    /** As {@link #findParallel(Path, String, int)}, restricted by a filter
+     * whose pruned directories are never listed.
+     *
+     * @param start the directory to search from
+     * @param pattern the glob pattern to match names against
+     * @param parallelism the number of worker threads
+     * @param filter further restricts the search, may be null
+     * @return the matches, in no particular order
+     * @throws IOException if the search is interrupted
+     */
+    public static List<Path> findParallel(Path start, String pattern, int parallelism, Filter filter) throws IOException {
+        final FindPath finder = new FindPath(pattern);
+        final Queue<Path> matches = new ConcurrentLinkedQueue<>();
+        walkParallel(start, parallelism, filter, (path, attrs) -> {
+            if (finder.matches(path)) {
+                matches.add(path);
+            }
+        });
+        return new ArrayList<>(matches);
+    }
+
+    /** Visits the starting directory and everything under it concurrently,
+     * reporting only entries that pass the filter
+     */
+    static void walkParallel(Path start, int parallelism, Filter filter,
+            BiConsumer<Path, BasicFileAttributes> visitor) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(start, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (filter == null || filter.accept(attrs)) {
+            visitor.accept(start, attrs);
+        }
+        if (!attrs.isDirectory() || (filter != null && filter.getMaxDepth() == 0)) {
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(new ParallelWalk(start, 1, filter, visitor)).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Parallel search interrupted");
+        } catch (ExecutionException ex) {
+            throw StreamCopier.asIOException(ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Size of the blocks read by a content search */
+    private static final int GREP_BLOCK = 1024 * 1024;
+
+    /** How far into a file to look for a NUL byte that marks it as binary */
+    private static final int BINARY_PROBE = 8 * 1024;
+
+    /** An occurrence found by a content search */
+    public static class Hit {
+
+        private final Path path;
+        private final long offset;
+        private final long line;
+
+        Hit(Path path, long offset, long line) {
+            this.path = path;
+            this.offset = offset;
+            this.line = line;
+        }
+
+        /** @return the file searched */
+        public Path getPath() {
+            return path;
+        }
+
+        /** @return the byte offset of the occurrence in the file */
+        public long getOffset() {
+            return offset;
+        }
+
+        /** @return the 1 based line number of the occurrence */
+        public long getLine() {
+            return line;
+        }
+
+        @Override
+        public String toString() {
+            return path + ":" + line + ":" + offset;
+        }
+    }
+
+    /** Searches the content of files for UTF-8 encoded text
+     *
+     * @param start the directory to search from
+     * @param pattern the glob pattern file names must match, e.g. "*"
+     * @param text the text to search for
+     * @param parallelism the number of worker threads
+     * @param hits receives every occurrence, possibly from several threads at
+     * once
+     * @return the number of occurrences found
+     * @throws IOException if the search is interrupted
+     * @see #grep(Path, String, byte[], int, Filter, Consumer)
+     */
+    public static long grep(Path start, String pattern, String text, int parallelism, Consumer<Hit> hits) throws IOException {
+        return grep(start, pattern, text.getBytes(StandardCharsets.UTF_8), parallelism, null, hits);
+    }
+
+    /** Searches the content of files for UTF-8 encoded text, restricted by a
+     * filter whose pruned directories are never listed
+     *
+     * @param start the directory to search from
+     * @param pattern the glob pattern file names must match, e.g. "*"
+     * @param text the text to search for
+     * @param parallelism the number of worker threads
+     * @param filter further restricts the files searched, may be null
+     * @param hits receives every occurrence, possibly from several threads at
+     * once
+     * @return the number of occurrences found
+     * @throws IOException if the search is interrupted
+     * @see #grep(Path, String, byte[], int, Filter, Consumer)
+     */
+    public static long grep(Path start, String pattern, String text, int parallelism, Filter filter, Consumer<Hit> hits) throws IOException {
+        return grep(start, pattern, text.getBytes(StandardCharsets.UTF_8), parallelism, filter, hits);
+    }
+
+    /** Searches the content of the regular files whose names match the glob
+     * pattern for a byte sequence.  Directories are traversed as by
+     * {@link #findParallel(Path, String, int)} and every candidate file is
+     * searched by its own task on the same pool, reading raw bytes in large
+     * blocks with a Boyer-Moore-Horspool scan so that the disk rather than a
+     * single core sets the pace.  Files with a NUL byte near their start are
+     * taken to be binary and skipped, as are files that can not be read.
+     * Occurrences are passed to the consumer as they are found.
+     *
+     * @param start the directory to search from
+     * @param pattern the glob pattern file names must match, e.g. "*"
+     * @param needle the bytes to search for
+     * @param parallelism the number of worker threads
+     * @param hits receives every occurrence, possibly from several threads at
+     * once
+     * @return the number of occurrences found
+     * @throws IOException if the search is interrupted
+     */
+    public static long grep(Path start, String pattern, byte[] needle, int parallelism, Consumer<Hit> hits) throws IOException {
+        return grep(start, pattern, needle, parallelism, null, hits);
+    }
+
+    /** As {@link #grep(Path, String, byte[], int, Consumer)}, restricted by a
+     * filter whose pruned directories, e.g. ".git" or "target", are never
+     * listed and whose rejected files are never opened.
+     *
+     * @param start the directory to search from
+     * @param pattern the glob pattern file names must match, e.g. "*"
+     * @param needle the bytes to search for
+     * @param parallelism the number of worker threads
+     * @param filter further restricts the files searched, may be null
+     * @param hits receives every occurrence, possibly from several threads at
+     * once
+     * @return the number of occurrences found
+     * @throws IOException if the search is interrupted
+     */
+    public static long grep(Path start, String pattern, final byte[] needle, int parallelism, Filter filter, final Consumer<Hit> hits) throws IOException {
+        if (needle.length == 0) {
+            throw new IllegalArgumentException("Nothing to search for");
+        }
+        final FindPath finder = new FindPath(pattern);
+        final int[] shift = horspoolShifts(needle);
+        final AtomicLong count = new AtomicLong();
+        final Queue<ForkJoinTask<?>> searches = new ConcurrentLinkedQueue<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(new ParallelWalk(start, 1, filter, (path, attrs) -> {
+                if (attrs.isRegularFile() && finder.matches(path)) {
+
+                    // Forked from a worker, so it is queued on this pool
+                    searches.add(ForkJoinTask.adapt(() -> {
+                        count.addAndGet(search(path, attrs.size(), needle, shift, hits));
+                    }).fork());
+                }
+            })).get();
+            for (ForkJoinTask<?> search : searches) {
+                search.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Content search interrupted");
+        } catch (ExecutionException ex) {
+            throw StreamCopier.asIOException(ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return count.get();
+    }
+
+    /** @return the Horspool bad character shift table for the needle */
+    private static int[] horspoolShifts(byte[] needle) {
+        int m = needle.length;
+        int[] shift = new int[256];
+        Arrays.fill(shift, m);
+        for (int i = 0; i < m - 1; i++) {
+            shift[needle[i] & 0xff] = m - 1 - i;
+        }
+        return shift;
+    }
+
+    /** Scans one file block by block, carrying the last needle length - 1
+     * bytes of each block over so that occurrences spanning two blocks are
+     * found.  The block is no bigger than the file needs, so that a tree of
+     * small files does not churn through a megabyte of garbage per file.
+     *
+     * @return the number of occurrences, 0 for binary or unreadable files
+     */
+    private static long search(Path file, long size, byte[] needle, int[] shift, Consumer<Hit> hits) {
+        final int m = needle.length;
+        byte[] block = new byte[(int) Math.max(1L, Math.min(size, GREP_BLOCK)) + m - 1];
+        long found = 0L;
+        try (InputStream in = Files.newInputStream(file)) {
+            long base = 0L;
+            long line = 1L;
+            int length = 0;
+            boolean first = true;
+            while (true) {
+                int n = in.readNBytes(block, length, block.length - length);
+                boolean eof = length + n < block.length;
+                length += n;
+                if (first) {
+                    first = false;
+                    for (int i = 0; i < Math.min(length, BINARY_PROBE); i++) {
+                        if (block[i] == 0) {
+                            return 0L;
+                        }
+                    }
+                }
+                int counted = 0;
+                int i = 0;
+                while (i <= length - m) {
+                    int j = m - 1;
+                    while (j >= 0 && block[i + j] == needle[j]) {
+                        j--;
+                    }
+                    if (j < 0) {
+                        line += newlines(block, counted, i);
+                        counted = i;
+                        hits.accept(new Hit(file, base + i, line));
+                        found++;
+                    }
+                    i += shift[block[i + m - 1] & 0xff];
+                }
+                if (eof) {
+                    return found;
+                }
+                int keep = m - 1;
+                line += newlines(block, counted, length - keep);
+                System.arraycopy(block, length - keep, block, 0, keep);
+                base += length - keep;
+                length = keep;
+            }
+        } catch (IOException ex) {
+            return found;
+        }
+    }
+
+    private static int newlines(byte[] block, int from, int to) {
+        int n = 0;
+        for (int i = from; i < to; i++) {
+            if (block[i] == '\n') {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /** Lists one directory, reporting each entry and forking a task for
+     * every subdirectory that is not pruned
+     */
+    private static class ParallelWalk extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final int depth;
+        private final Filter filter;
+        private final BiConsumer<Path, BasicFileAttributes> visitor;
+
+        /**
+         * @param depth the depth of the directory's entries
+         */
+        ParallelWalk(Path dir, int depth, Filter filter, BiConsumer<Path, BasicFileAttributes> visitor) {
+            this.dir = dir;
+            this.depth = depth;
+            this.filter = filter;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected void compute() {
+            List<ParallelWalk> subdirs = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attrs;
+                    try {
+                        attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    } catch (IOException ex) {
+                        continue;
+                    }
+                    if (attrs.isDirectory() && filter != null && filter.isExcluded(entry)) {
+                        continue;
+                    }
+                    if (filter == null || filter.accept(attrs)) {
+                        visitor.accept(entry, attrs);
+                    }
+                    if (attrs.isDirectory() && (filter == null || depth < filter.getMaxDepth())) {
+                        ParallelWalk task = new ParallelWalk(entry, depth + 1, filter, visitor);
+                        task.fork();
+                        subdirs.add(task);
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException ex) {
+                // unreadable, skip it as visitFileFailed would
+            }
+            for (ParallelWalk task : subdirs) {
+                task.join();
+            }
+        }
+    }
+
+    /** Finds the files and directories matching each of several patterns in
+     * a single walk of the tree, instead of one walk per pattern.
+     *
+     * @param start the directory to search from
+     * @param patterns names of the form "glob:..." or "regex:...", a bare
+     * pattern being a glob
+     * @return for each pattern, in the order given, its matches in visiting
+     * order
+     * @throws IOException if the walk fails
+     * @see MultiMatcher
+     */
+    public static Map<String, List<Path>> findAll(Path start, Collection<String> patterns) throws IOException {
+        return findAll(start, patterns, null);
+    }
+
+    /** As {@link #findAll(Path, Collection)}, restricted by a filter whose
+     * pruned directories are never listed.
+     *
+     * @param start the directory to search from
+     * @param patterns names of the form "glob:..." or "regex:...", a bare
+     * pattern being a glob
+     * @param filter further restricts the search, may be null
+     * @return for each pattern, in the order given, its matches in visiting
+     * order
+     * @throws IOException if the walk fails
+     */
+    public static Map<String, List<Path>> findAll(Path start, Collection<String> patterns, final Filter filter) throws IOException {
+        final MultiMatcher matcher = new MultiMatcher(patterns);
+        final Map<String, List<Path>> results = new LinkedHashMap<>();
+        for (String pattern : matcher.patterns) {
+            results.put(pattern, new ArrayList<>());
+        }
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+
+            private int depth = 0;
+
+            private void classify(Path path, BasicFileAttributes attrs) {
+                if (filter == null || filter.accept(attrs)) {
+                    for (String pattern : matcher.match(path)) {
+                        results.get(pattern).add(path);
+                    }
+                }
+            }
+
+            // Prunes as FindPath does when used as a visitor
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (filter != null && depth > 0 && filter.isExcluded(dir)) {
+                    return SKIP_SUBTREE;
+                }
+                classify(dir, attrs);
+                if (filter != null && depth == filter.getMaxDepth()) {
+                    return SKIP_SUBTREE;
+                }
+                depth++;
+                return CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                depth--;
+                return CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                classify(file, attrs);
+                return CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return CONTINUE;
+            }
+        });
+        return results;
+    }
+
+    /** Matches file names against many glob and regex patterns at once.
+     * Globs that are a plain name, <code>*.ext</code>, <code>*suffix</code>
+     * or <code>prefix*</code> are answered with hash lookups and string
+     * comparisons; anything else falls back to a {@link PathMatcher}.  Glob
+     * case sensitivity follows the default file system.
+     */
+    public static class MultiMatcher {
+
+        private final List<String> patterns = new ArrayList<>();
+        private final boolean ignoreCase;
+        private final Map<String, List<String>> names = new HashMap<>();
+        private final Map<String, List<String>> extensions = new HashMap<>();
+        private final List<String[]> suffixes = new ArrayList<>();
+        private final List<String[]> prefixes = new ArrayList<>();
+        private final Map<String, PathMatcher> others = new LinkedHashMap<>();
+
+        /**
+         * @param patterns names of the form "glob:..." or "regex:...", a bare
+         * pattern being a glob; duplicates are ignored
+         */
+        public MultiMatcher(Collection<String> patterns) {
+            FileSystem fs = FileSystems.getDefault();
+            ignoreCase = fs.getPathMatcher("glob:A").matches(Paths.get("a"));
+            for (String pattern : patterns) {
+                if (this.patterns.contains(pattern)) {
+                    continue;
+                }
+                this.patterns.add(pattern);
+                if (pattern.startsWith("regex:")) {
+                    others.put(pattern, fs.getPathMatcher(pattern));
+                    continue;
+                }
+                String glob = pattern.startsWith("glob:") ? pattern.substring(5) : pattern;
+                if (isLiteral(glob)) {
+                    names.computeIfAbsent(fold(glob), k -> new ArrayList<>()).add(pattern);
+                } else if (glob.startsWith("*") && isLiteral(glob.substring(1))) {
+                    String suffix = fold(glob.substring(1));
+                    if (suffix.startsWith(".") && suffix.indexOf('.', 1) < 0) {
+                        extensions.computeIfAbsent(suffix, k -> new ArrayList<>()).add(pattern);
+                    } else {
+                        suffixes.add(new String[] {suffix, pattern});
+                    }
+                } else if (glob.endsWith("*") && isLiteral(glob.substring(0, glob.length() - 1))) {
+                    prefixes.add(new String[] {fold(glob.substring(0, glob.length() - 1)), pattern});
+                } else {
+                    others.put(pattern, fs.getPathMatcher("glob:" + glob));
+                }
+            }
+        }
+
+        private static boolean isLiteral(String glob) {
+            for (int i = 0; i < glob.length(); i++) {
+                if ("*?[]{}\\".indexOf(glob.charAt(i)) >= 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String fold(String s) {
+            return ignoreCase ? s.toLowerCase(Locale.ROOT) : s;
+        }
+
+        /** @return the patterns, in the order given, without duplicates */
+        public List<String> getPatterns() {
+            return Collections.unmodifiableList(patterns);
+        }
+
+        /** Classifies a file or directory by its name
+         *
+         * @param path the Path whose name is matched
+         * @return the patterns that match, empty if none do
+         */
+        public List<String> match(Path path) {
+            Path fileName = path.getFileName();
+            if (fileName == null) {
+                return Collections.emptyList();
+            }
+            String name = fold(fileName.toString());
+            List<String> hits = new ArrayList<>(2);
+            List<String> exact = names.get(name);
+            if (exact != null) {
+                hits.addAll(exact);
+            }
+            int dot = name.lastIndexOf('.');
+            if (dot >= 0) {
+                List<String> ext = extensions.get(name.substring(dot));
+                if (ext != null) {
+                    hits.addAll(ext);
+                }
+            }
+            for (String[] suffix : suffixes) {
+                if (name.endsWith(suffix[0])) {
+                    hits.add(suffix[1]);
+                }
+            }
+            for (String[] prefix : prefixes) {
+                if (name.startsWith(prefix[0])) {
+                    hits.add(prefix[1]);
+                }
+            }
+            for (Map.Entry<String, PathMatcher> other : others.entrySet()) {
+                if (other.getValue().matches(fileName)) {
+                    hits.add(other.getKey());
+                }
+            }
+            return hits;
+        }
+    }
+
     static void usage() {
         System.err.println("java Find <path>" + " -name \"<glob_pattern>\"");
         System.exit(-1);
@@ -93,8 +983,8 @@ public class FindPath extends SimpleFileVisitor<Path> {
         Path startingDir = Paths.get(args[0]);
         String pattern = args[2];
 
-        FindPath finder = new FindPath(pattern);
-        Files.walkFileTree(startingDir, finder);
-        finder.get();
+        try (Stream<Path> matches = stream(startingDir, pattern)) {
+            matches.forEach(match -> System.out.println("Success! found: " + match));
+        }
     }
 }
@@ -0,0 +1,346 @@
+/*
+Copyright (c) 1995-2026 held by the author(s).  All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer
+      in the documentation and/or other materials provided with the
+      distribution.
+    * Neither the names of the Naval Postgraduate School (NPS)
+      Modeling Virtual Environments and Simulation (MOVES) Institute
+      (http://www.nps.edu and https://my.nps.edu/web/moves)
+      nor the names of its contributors may be used to endorse or
+      promote products derived from this software without specific
+      prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+POSSIBILITY OF SUCH DAMAGE.
+*/
+package com.norb.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * An in memory index of a directory tree that keeps itself current from
+ * {@link WatchService} events, so that {@link FindPath} style glob queries are
+ * answered without touching the disk.  Every directory in the tree is watched,
+ * including those created after the index is started.  If the watch service
+ * reports an overflow, i.e. events were lost, the affected directories are
+ * scanned again, once for each batch of events however many report it, and
+ * only what is gone dropped afterwards.  Queries may be made from any thread
+ * while the index is being updated; a change becomes visible shortly after it
+ * happens, once the watcher thread has processed its event.
+ *
+ * @author <a href="mailto:tdnorbra@nps.edu?subject=com.norb.utils.LivePathIndex">Terry Norbraten, NPS MOVES</a>
+ */
+public class LivePathIndex implements Closeable {
+
+    static final Logger LOG = LogUtils.getLogger(LivePathIndex.class);
+
+    private final Path root;
+    private final WatchService watcher;
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+    private final Map<Path, WatchKey> watched = new ConcurrentHashMap<>();
+    private final Map<Path, PathIndex.Entry> entries = new ConcurrentHashMap<>();
+
+    /** What is indexed in each directory, so a subtree can be dropped in
+     * time proportional to its size rather than the index's
+     */
+    private final Map<Path, Set<Path>> children = new ConcurrentHashMap<>();
+    private final Thread thread;
+
+    /**
+     * Indexes the tree and starts watching it on a daemon thread
+     *
+     * @param root the top of the tree to index
+     * @throws IOException if the tree can not be read or watched
+     */
+    public LivePathIndex(Path root) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        watcher = this.root.getFileSystem().newWatchService();
+        try {
+            scan(this.root, null);
+        } catch (IOException ex) {
+            watcher.close();
+            throw ex;
+        }
+        thread = new Thread(this::processEvents, "LivePathIndex-" + this.root.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** @return the top of the indexed tree */
+    public Path getRoot() {
+        return root;
+    }
+
+    /** @return the number of indexed entries, including the root */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param path a path in the tree
+     * @return the indexed state of the path, or null if it is not indexed
+     */
+    public PathIndex.Entry get(Path path) {
+        return entries.get(path.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Answers from memory with every indexed file or directory whose name
+     * matches the glob pattern
+     *
+     * @param pattern the glob pattern to match names against
+     * @return the matches, sorted
+     */
+    public List<Path> find(String pattern) {
+        FindPath finder = new FindPath(pattern);
+        List<Path> matches = new ArrayList<>();
+        for (Path path : entries.keySet()) {
+            if (finder.matches(path)) {
+                matches.add(path);
+            }
+        }
+        Collections.sort(matches);
+        return matches;
+    }
+
+    /** Stops watching the tree and discards the index */
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+        thread.interrupt();
+        entries.clear();
+        children.clear();
+        keys.clear();
+        watched.clear();
+    }
+
+    /** Indexes a subtree, watching every directory in it
+     *
+     * @param seen if not null, collects every path found
+     */
+    private void scan(Path start, Set<Path> seen) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                keys.put(key, dir);
+                watched.put(dir, key);
+                put(new PathIndex.Entry(dir, attrs));
+                if (seen != null) {
+                    seen.add(dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                put(new PathIndex.Entry(file, attrs));
+                if (seen != null) {
+                    seen.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                LOG.debug("Not indexing {}: {}", file, exc.toString());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void processEvents() {
+        while (true) {
+            List<Path> overflowed = new ArrayList<>();
+            try {
+                WatchKey key = watcher.take();
+
+                // Drain whatever else is ready, so that an overflow, which
+                // Linux reports to every key, is rescanned once, not per key
+                int budget = keys.size();
+                do {
+                    process(key, overflowed);
+                } while (budget-- > 0 && (key = watcher.poll()) != null);
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                return;
+            }
+            rescan(overflowed);
+        }
+    }
+
+    private void process(WatchKey key, List<Path> overflowed) {
+        Path dir = keys.get(key);
+        if (dir != null) {
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflowed.add(dir);
+                    continue;
+                }
+                try {
+                    handle(dir, event);
+                } catch (IOException ex) {
+                    LOG.debug("Could not update {} for {}: {}", dir, event.kind(), ex.toString());
+                }
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(key);
+        }
+    }
+
+    /** Scans again the topmost of the directories that lost events.  The
+     * scan updates entries in place and only then are those no longer found
+     * dropped, so queries never see a rescanned subtree missing.
+     */
+    private void rescan(List<Path> overflowed) {
+        Collections.sort(overflowed);
+        List<Path> tops = new ArrayList<>();
+        for (Path dir : overflowed) {
+
+            // Sorted, a directory comes before anything below it, though not
+            // necessarily straight before, e.g. a, a-b, a/b
+            boolean covered = false;
+            for (Path top : tops) {
+                if (dir.startsWith(top)) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) {
+                tops.add(dir);
+            }
+        }
+        for (Path dir : tops) {
+            LOG.debug("Events lost, rescanning {}", dir);
+            if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)) {
+                remove(dir);
+                continue;
+            }
+            Set<Path> seen = new HashSet<>();
+            try {
+                scan(dir, seen);
+            } catch (IOException ex) {
+                LOG.debug("Could not rescan {}: {}", dir, ex.toString());
+                continue;
+            }
+            prune(dir, seen);
+        }
+    }
+
+    /** Drops whatever is indexed below a directory but was not seen again */
+    private void prune(Path dir, Set<Path> seen) {
+        Set<Path> below = children.get(dir);
+        if (below == null) {
+            return;
+        }
+        for (Path child : new ArrayList<>(below)) {
+            if (seen.contains(child)) {
+                prune(child, seen);
+            } else {
+                remove(child);
+            }
+        }
+    }
+
+    private void handle(Path dir, WatchEvent<?> event) throws IOException {
+        WatchEvent.Kind<?> kind = event.kind();
+        Path path = dir.resolve((Path) event.context());
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            remove(path);
+            return;
+        }
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException ex) {
+            remove(path);
+            return;
+        }
+        if (attrs.isDirectory()) {
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+
+                // Entries made before the directory was registered send no events
+                scan(path, null);
+            } else {
+                put(new PathIndex.Entry(path, attrs));
+            }
+        } else {
+            put(new PathIndex.Entry(path, attrs));
+        }
+    }
+
+    private void put(PathIndex.Entry entry) {
+        Path path = entry.getPath();
+        entries.put(path, entry);
+        if (!path.equals(root)) {
+            children.computeIfAbsent(path.getParent(), k -> ConcurrentHashMap.newKeySet()).add(path);
+        }
+    }
+
+    /** Drops a path and everything indexed below it */
+    private void remove(Path path) {
+        drop(path);
+        Set<Path> siblings = children.get(path.getParent());
+        if (siblings != null) {
+            siblings.remove(path);
+        }
+    }
+
+    private void drop(Path path) {
+        Set<Path> below = children.remove(path);
+        if (below != null) {
+            for (Path child : below) {
+                drop(child);
+            }
+        }
+        entries.remove(path);
+        WatchKey key = watched.remove(path);
+        if (key != null) {
+            key.cancel();
+            keys.remove(key);
+        }
+    }
+
+} // end class file LivePathIndex.java
@@ -0,0 +1,352 @@
+/*
+Copyright (c) 1995-2026 held by the author(s).  All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer
+      in the documentation and/or other materials provided with the
+      distribution.
+    * Neither the names of the Naval Postgraduate School (NPS)
+      Modeling Virtual Environments and Simulation (MOVES) Institute
+      (http://www.nps.edu and https://my.nps.edu/web/moves)
+      nor the names of its contributors may be used to endorse or
+      promote products derived from this software without specific
+      prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+POSSIBILITY OF SUCH DAMAGE.
+*/
+package com.norb.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A persistent index of a directory tree for repeated {@link FindPath} style
+ * glob searches.  The path, size, last modified time and type of every entry
+ * is kept in memory and saved to an index file.  Before a search only the
+ * directories are checked: a directory whose last modified time has changed
+ * (an entry was added, removed or renamed in it) is listed again, everything
+ * else is taken from the index, so a warm search costs one stat per directory
+ * instead of a full walk.  Changes to the content of a file do not touch its
+ * directory, so sizes and times of files in unchanged directories may be
+ * stale; names are always current.
+ *
+ * @author <a href="mailto:tdnorbra@nps.edu?subject=com.norb.utils.PathIndex">Terry Norbraten, NPS MOVES</a>
+ */
+public class PathIndex {
+
+    static final Logger LOG = LogUtils.getLogger(PathIndex.class);
+
+    /** "NPIX", identifies an index file */
+    private static final int MAGIC = 0x4e504958;
+    private static final int VERSION = 1;
+
+    /** The path, size, last modified time and type of an indexed entry */
+    public static class Entry {
+
+        private final Path path;
+        private final long size;
+        private final long lastModified;
+        private final FindPath.Filter.Type type;
+
+        Entry(Path path, long size, long lastModified, FindPath.Filter.Type type) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.type = type;
+        }
+
+        Entry(Path path, BasicFileAttributes attrs) {
+            this(path, attrs.size(), attrs.lastModifiedTime().toMillis(), FindPath.Filter.Type.of(attrs));
+        }
+
+        /** @return the path of the entry */
+        public Path getPath() {
+            return path;
+        }
+
+        /** @return the size in bytes when last indexed */
+        public long getSize() {
+            return size;
+        }
+
+        /** @return the last modified time in milliseconds when last indexed */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /** @return the type of the entry, links not followed */
+        public FindPath.Filter.Type getType() {
+            return type;
+        }
+
+        /** @return true for a directory */
+        public boolean isDirectory() {
+            return type == FindPath.Filter.Type.DIRECTORY;
+        }
+
+        @Override
+        public String toString() {
+            return path + (isDirectory() ? "/" : type == FindPath.Filter.Type.FILE ? " " + size : " " + type);
+        }
+    }
+
+    private final Path root;
+    private final Path indexFile;
+    private final Map<Path, Entry> entries = new HashMap<>();
+    private final Map<Path, Set<Path>> children = new HashMap<>();
+    private boolean dirty;
+
+    private PathIndex(Path root, Path indexFile) {
+        this.root = root.toAbsolutePath().normalize();
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Loads the index of a tree from its index file, or builds it with a full
+     * walk if the file is missing, unreadable or indexes another tree.  The
+     * index is brought up to date and saved before it is returned.
+     *
+     * @param root the top of the indexed tree
+     * @param indexFile where the index is kept between runs
+     * @return the index
+     * @throws IOException if the tree can not be read or the index saved
+     */
+    public static PathIndex open(Path root, Path indexFile) throws IOException {
+        PathIndex index = new PathIndex(root, indexFile);
+        if (!index.load()) {
+            index.entries.clear();
+            index.children.clear();
+            index.scan(index.root);
+            index.dirty = true;
+        }
+        index.refresh();
+        return index;
+    }
+
+    /** @return the top of the indexed tree */
+    public Path getRoot() {
+        return root;
+    }
+
+    /** @return every indexed entry, including the root */
+    public synchronized Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(new ArrayList<>(entries.values()));
+    }
+
+    /**
+     * Revalidates the index, then returns every indexed file or directory
+     * whose name matches the glob pattern.
+     *
+     * @param pattern the glob pattern to match names against
+     * @return the matches, sorted
+     * @throws IOException if the tree can not be read or the index saved
+     */
+    public synchronized List<Path> find(String pattern) throws IOException {
+        refresh();
+        FindPath finder = new FindPath(pattern);
+        List<Path> matches = new ArrayList<>();
+        for (Path path : entries.keySet()) {
+            if (finder.matches(path)) {
+                matches.add(path);
+            }
+        }
+        Collections.sort(matches);
+        return matches;
+    }
+
+    /**
+     * Checks the last modified time of every indexed directory, lists again
+     * those that changed, and saves the index if anything did.
+     *
+     * @throws IOException if the tree can not be read or the index saved
+     */
+    public synchronized void refresh() throws IOException {
+        revalidate(root);
+        if (dirty) {
+            save();
+        }
+    }
+
+    /** Writes the index file, replacing it atomically where possible
+     *
+     * @throws IOException if the index can not be saved
+     */
+    public synchronized void save() throws IOException {
+        Path parent = indexFile.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(parent, indexFile.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(root.toString());
+            out.writeInt(entries.size());
+            for (Entry entry : entries.values()) {
+                out.writeUTF(root.relativize(entry.path).toString());
+                out.writeLong(entry.size);
+                out.writeLong(entry.lastModified);
+                out.writeByte(entry.type.ordinal());
+            }
+        } catch (IOException ex) {
+            Files.deleteIfExists(tmp);
+            throw ex;
+        }
+        FileIO.moveFile(tmp.toFile(), indexFile.toFile());
+        dirty = false;
+    }
+
+    /** @return true if a usable index of this root was read */
+    private boolean load() {
+        if (!Files.isRegularFile(indexFile)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !root.toString().equals(in.readUTF())) {
+                return false;
+            }
+            FindPath.Filter.Type[] types = FindPath.Filter.Type.values();
+            for (int n = in.readInt(); n > 0; n--) {
+                Path path = root.resolve(in.readUTF()).normalize();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                int type = in.readUnsignedByte();
+                if (type >= types.length) {
+                    return false;
+                }
+                put(new Entry(path, size, lastModified, types[type]));
+            }
+            return entries.containsKey(root);
+        } catch (IOException ex) {
+            LOG.warn("Ignoring unreadable index {}: {}", indexFile, ex.toString());
+            return false;
+        }
+    }
+
+    private void put(Entry entry) {
+        entries.put(entry.path, entry);
+        if (!entry.path.equals(root)) {
+            children.computeIfAbsent(entry.path.getParent(), k -> new HashSet<>()).add(entry.path);
+        }
+    }
+
+    /** Indexes a path and, if it is a directory, everything below it */
+    private void scan(Path path) throws IOException {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException ex) {
+            return;
+        }
+        put(new Entry(path, attrs));
+        if (attrs.isDirectory()) {
+            for (Path child : list(path)) {
+                scan(child);
+            }
+        }
+    }
+
+    /** Lists a directory again if it changed, then revalidates its subdirectories */
+    private void revalidate(Path dir) throws IOException {
+        Entry indexed = entries.get(dir);
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(dir, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException ex) {
+            remove(dir);
+            return;
+        }
+        if (indexed == null || !attrs.isDirectory()) {
+            // The root was missing when indexed, or the entry changed type
+            remove(dir);
+            scan(dir);
+            return;
+        }
+        if (indexed.lastModified != attrs.lastModifiedTime().toMillis()) {
+            put(new Entry(dir, attrs));
+            Set<Path> before = new HashSet<>(children.getOrDefault(dir, Collections.emptySet()));
+            for (Path child : list(dir)) {
+                if (!before.remove(child)) {
+                    scan(child);
+                } else if (!entries.get(child).isDirectory()) {
+                    remove(child);
+                    scan(child);
+                }
+            }
+            for (Path gone : before) {
+                remove(gone);
+            }
+            dirty = true;
+        }
+        for (Path child : new ArrayList<>(children.getOrDefault(dir, Collections.emptySet()))) {
+            Entry entry = entries.get(child);
+            if (entry != null && entry.isDirectory()) {
+                revalidate(child);
+            }
+        }
+    }
+
+    /** Drops a path and everything indexed below it */
+    private void remove(Path path) {
+        Set<Path> below = children.remove(path);
+        if (below != null) {
+            for (Path child : below) {
+                remove(child);
+            }
+        }
+        entries.remove(path);
+        Set<Path> siblings = children.get(path.getParent());
+        if (siblings != null) {
+            siblings.remove(path);
+        }
+        dirty = true;
+    }
+
+    /** @return the entries of a directory, none if it can not be read */
+    private static List<Path> list(Path dir) {
+        List<Path> list = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path child : stream) {
+                list.add(child);
+            }
+        } catch (IOException | DirectoryIteratorException ex) {
+            LOG.debug("Skipping unreadable directory {}: {}", dir, ex.toString());
+        }
+        return list;
+    }
+
+} // end class file PathIndex.java
@@ -0,0 +1,276 @@
+/*
+Copyright (c) 1995-2026 held by the author(s).  All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer
+      in the documentation and/or other materials provided with the
+      distribution.
+    * Neither the names of the Naval Postgraduate School (NPS)
+      Modeling Virtual Environments and Simulation (MOVES) Institute
+      (http://www.nps.edu and https://my.nps.edu/web/moves)
+      nor the names of its contributors may be used to endorse or
+      promote products derived from this software without specific
+      prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+POSSIBILITY OF SUCH DAMAGE.
+*/
+package com.norb.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of scratch files created through
+ * {@link TempFileManager#createTempFile(String, String)}, so that code which
+ * needs many short lived temp files can reuse a handful instead of creating and
+ * deleting a new file every time.  A borrowed file is truncated to zero length
+ * when it is returned.  Files left idle for longer than the pool's time to
+ * live are deleted lazily, whenever the pool is used; there is no background
+ * thread, so a pool that goes quiet keeps its idle files until it is used
+ * again, {@link #purge()} is called, or it is closed.  When the pool is empty
+ * a new file is created (a miss); when it is full a returned file is deleted.
+ * Instances are thread safe.
+ *
+ * @author <a href="mailto:tdnorbra@nps.edu?subject=com.norb.utils.ScratchFilePool">Terry Norbraten, NPS MOVES</a>
+ */
+public class ScratchFilePool implements Closeable {
+
+    /** The default number of idle files a pool will hold on to */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /** One minute, the default time a file may sit idle before it is deleted */
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1L);
+
+    /** A returned file and when it was returned */
+    private static final class Idle {
+
+        final File file;
+        final long since;
+
+        Idle(File file) {
+            this.file = file;
+            since = System.nanoTime();
+        }
+    }
+
+    private final String prefix;
+    private final long ttlNanos;
+
+    /** Most recently returned first, so the oldest files expire off the end */
+    private final BlockingDeque<Idle> idle;
+
+    /** Files currently lent out, and the channels opened on some of them */
+    private final Set<File> borrowed = ConcurrentHashMap.newKeySet();
+    private final Map<File, FileChannel> open = new ConcurrentHashMap<>();
+    private final Map<FileChannel, File> channels = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    /** Creates a pool of up to {@link #DEFAULT_CAPACITY} idle files that
+     * expire after {@link #DEFAULT_TTL_MILLIS}
+     */
+    public ScratchFilePool() {
+        this("scratch", DEFAULT_CAPACITY, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * @param prefix the file name prefix, at least three characters long
+     * @param capacity the maximum number of idle files retained
+     * @param ttlMillis how long a returned file may sit idle before it is
+     * deleted
+     */
+    public ScratchFilePool(String prefix, int capacity, long ttlMillis) {
+        if (prefix == null || prefix.length() < 3) {
+            throw new IllegalArgumentException("prefix must be at least three characters long");
+        }
+        if (capacity <= 0 || ttlMillis < 0L) {
+            throw new IllegalArgumentException("capacity must be positive and ttlMillis not negative");
+        }
+        this.prefix = prefix;
+        ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        idle = new LinkedBlockingDeque<>(capacity);
+    }
+
+    /**
+     * @return an empty file, reused from the pool when an unexpired one is idle
+     * @throws IOException if a new file could not be created
+     */
+    public File acquire() throws IOException {
+        purge();
+        Idle entry = idle.pollFirst();
+        File file;
+        if (entry == null) {
+            misses.incrementAndGet();
+            file = TempFileManager.createTempFile(prefix, ".scratch");
+        } else {
+            hits.incrementAndGet();
+            file = entry.file;
+        }
+        borrowed.add(file);
+        return file;
+    }
+
+    /**
+     * Borrows a file and opens it for reading and writing.  Give the channel
+     * back with {@link #release(FileChannel)}, which also closes it.
+     *
+     * @return an open channel positioned at the start of an empty file
+     * @throws IOException if the file could not be created or opened
+     */
+    public FileChannel acquireChannel() throws IOException {
+        File file = acquire();
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            borrowed.remove(file);
+            file.delete();
+            throw e;
+        }
+        open.put(file, channel);
+        channels.put(channel, file);
+        return channel;
+    }
+
+    /** Truncates a borrowed file and returns it to the pool.  Files that were
+     * not borrowed from this pool are ignored, so are never truncated; a file
+     * beyond the pool's capacity, or one that can no longer be truncated, is
+     * deleted instead.
+     * @param file the file to recycle, may be null
+     */
+    public void release(File file) {
+        if (file == null) {
+            return;
+        }
+        if (!borrowed.remove(file)) {
+            return;
+        }
+        FileChannel channel = open.remove(file);
+        if (channel != null) {
+            channels.remove(channel);
+            try {
+                channel.close();
+            } catch (IOException e) {
+                TempFileManager.LOG.warn("Unable to close scratch file " + file, e);
+            }
+        }
+        try (FileChannel truncate = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            truncate.truncate(0L);
+        } catch (IOException e) {
+            file.delete();
+            return;
+        }
+        if (!idle.offerFirst(new Idle(file))) {
+            file.delete();
+        }
+        purge();
+    }
+
+    /** Closes a channel from {@link #acquireChannel()} and returns its file to
+     * the pool.  Channels that did not come from this pool are ignored.
+     * @param channel the channel to recycle, may be null
+     */
+    public void release(FileChannel channel) {
+        if (channel != null) {
+            File file = channels.get(channel);
+            if (file != null) {
+                release(file);
+            }
+        }
+    }
+
+    /** Deletes every idle file that has outlived the pool's time to live.
+     * Called by {@link #acquire()} and {@link #release(File)}; call it
+     * directly to expire the files of a pool that is no longer being used.
+     */
+    public void purge() {
+        long now = System.nanoTime();
+        Idle oldest;
+        while ((oldest = idle.peekLast()) != null && now - oldest.since >= ttlNanos) {
+            if (idle.removeLastOccurrence(oldest)) {
+                oldest.file.delete();
+                expired.incrementAndGet();
+            }
+        }
+    }
+
+    /** Deletes every idle file.  Borrowed files can still be returned, but are
+     * then kept only until they expire.
+     */
+    @Override
+    public void close() {
+        Idle entry;
+        while ((entry = idle.pollFirst()) != null) {
+            entry.file.delete();
+        }
+    }
+
+    /** @return the number of files currently idle in the pool */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /** @return the number of files currently borrowed from the pool */
+    public int getBorrowedCount() {
+        return borrowed.size();
+    }
+
+    /** @return the number of acquisitions satisfied by a pooled file */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** @return the number of acquisitions that had to create a file */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** @return the number of idle files deleted for outliving the time to live */
+    public long getExpired() {
+        return expired.get();
+    }
+
+    /** Zeroes the hit, miss and expiry counters */
+    public void resetStats() {
+        hits.set(0L);
+        misses.set(0L);
+        expired.set(0L);
+    }
+
+    @Override
+    public String toString() {
+        return "ScratchFilePool[prefix=" + prefix + ", idle=" + idle.size()
+                + ", borrowed=" + borrowed.size() + ", hits=" + hits.get()
+                + ", misses=" + misses.get() + ", expired=" + expired.get() + "]";
+    }
+
+} // end class file ScratchFilePool.java
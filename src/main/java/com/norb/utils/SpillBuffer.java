@@ -0,0 +1,297 @@
+/*
+Copyright (c) 1995-2026 held by the author(s).  All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer
+      in the documentation and/or other materials provided with the
+      distribution.
+    * Neither the names of the Naval Postgraduate School (NPS)
+      Modeling Virtual Environments and Simulation (MOVES) Institute
+      (http://www.nps.edu and https://my.nps.edu/web/moves)
+      nor the names of its contributors may be used to endorse or
+      promote products derived from this software without specific
+      prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+POSSIBILITY OF SUCH DAMAGE.
+*/
+package com.norb.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds intermediate data in memory until it grows past a threshold, then
+ * spills it, transparently, to a scratch file borrowed from
+ * {@link TempFileManager#getScratchFilePool()}.  Small payloads so never touch
+ * the disk and large ones never take more than the threshold of heap.
+ * <p>
+ * Write through {@link #getOutputStream()} and close that stream, then read the
+ * data back as often as needed through {@link #getInputStream()} or
+ * {@link #writeTo(OutputStream)}.  Closing the buffer itself closes any stream
+ * still reading the spill file, so that later reads fail rather than see what
+ * the file's next borrower writes, then gives the file back to the pool.
+ * Instances are not thread safe.
+ *
+ * @author <a href="mailto:tdnorbra@nps.edu?subject=com.norb.utils.SpillBuffer">Terry Norbraten, NPS MOVES</a>
+ */
+public class SpillBuffer implements Closeable {
+
+    /** 1 MB, the default amount of data held in memory before spilling */
+    public static final int DEFAULT_THRESHOLD = 1024 * 1024;
+
+    private final int threshold;
+    private final Output output = new Output();
+
+    private byte[] memory = new byte[0];
+    private long size;
+    private File file;
+    private OutputStream fileOut;
+    private final List<InputStream> readers = new ArrayList<>();
+    private boolean writing = true;
+    private boolean closed;
+
+    /** Creates a buffer that spills past {@link #DEFAULT_THRESHOLD} bytes */
+    public SpillBuffer() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param threshold the most bytes held in memory; writing one more spills
+     * everything to disk
+     */
+    public SpillBuffer(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold must not be negative");
+        }
+        this.threshold = threshold;
+    }
+
+    /** @return the stream to write the data to; close it when done writing */
+    public OutputStream getOutputStream() {
+        return output;
+    }
+
+    /**
+     * @return a new stream over all of the data written
+     * @throws IOException if the spill file could not be opened
+     * @throws IllegalStateException if the output stream is still open, or this
+     * buffer is closed
+     */
+    public InputStream getInputStream() throws IOException {
+        checkReadable();
+        if (file == null) {
+            return new ByteArrayInputStream(memory, 0, (int) size);
+        }
+        InputStream reader = new Reader(new FileInputStream(file));
+        readers.add(reader);
+        return reader;
+    }
+
+    /**
+     * Copies all of the data written to the given stream
+     * @param out the stream to write to, left open
+     * @return the number of bytes written
+     * @throws IOException if reading the spill file or writing out fails
+     * @throws IllegalStateException if the output stream is still open, or this
+     * buffer is closed
+     */
+    public long writeTo(OutputStream out) throws IOException {
+        checkReadable();
+        if (file == null) {
+            out.write(memory, 0, (int) size);
+            return size;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return StreamCopier.copy(in, out);
+        }
+    }
+
+    /** @return the number of bytes written so far */
+    public long size() {
+        return size;
+    }
+
+    /** @return true once the data has outgrown memory and moved to disk */
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    /** @return the most bytes held in memory before spilling */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /** Drops the in memory data, or gives the spill file back to the pool
+     * @throws IOException if the spill file could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        writing = false;
+        memory = null;
+        if (file != null) {
+            IOException failure = null;
+
+            // Every reader is closed, even if one fails, before the file can
+            // be handed to anyone else
+            for (InputStream reader : new ArrayList<>(readers)) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            readers.clear();
+            try {
+                if (fileOut != null) {
+                    fileOut.close();
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+            fileOut = null;
+            TempFileManager.getScratchFilePool().release(file);
+            file = null;
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void checkReadable() {
+        if (closed) {
+            throw new IllegalStateException("SpillBuffer is closed");
+        }
+        if (writing) {
+            throw new IllegalStateException("Close the output stream before reading");
+        }
+    }
+
+    /** Moves what is in memory to a scratch file, where all later writes go */
+    private void spill() throws IOException {
+        file = TempFileManager.getScratchFilePool().acquire();
+        try {
+            fileOut = new BufferedOutputStream(new FileOutputStream(file), BufferPool.DEFAULT_BUFFER_SIZE);
+            fileOut.write(memory, 0, (int) size);
+        } catch (IOException e) {
+            TempFileManager.getScratchFilePool().release(file);
+            file = null;
+            fileOut = null;
+            throw e;
+        }
+        memory = null;
+    }
+
+    /** A stream over the spill file that forgets itself once closed */
+    private final class Reader extends BufferedInputStream {
+
+        Reader(InputStream in) {
+            super(in, BufferPool.DEFAULT_BUFFER_SIZE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            readers.remove(this);
+            super.close();
+        }
+    }
+
+    private final class Output extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            if (reserve(1)) {
+                memory[(int) size] = (byte) b;
+            } else {
+                fileOut.write(b);
+            }
+            size++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (reserve(len)) {
+                System.arraycopy(b, off, memory, (int) size, len);
+            } else {
+                fileOut.write(b, off, len);
+            }
+            size += len;
+        }
+
+        /** Makes room for len more bytes, spilling if memory cannot hold them
+         * @return true if the bytes go to memory, false if to the spill file
+         */
+        private boolean reserve(int len) throws IOException {
+            if (!writing) {
+                throw new IOException("Stream closed");
+            }
+            if (file != null) {
+                return false;
+            }
+            if (size + len > threshold) {
+                spill();
+                return false;
+            }
+            if (size + len > memory.length) {
+                // Grow geometrically, but never past the threshold
+                int capacity = (int) Math.min(threshold,
+                        Math.max(size + len, Math.max(256L, 2L * memory.length)));
+                memory = Arrays.copyOf(memory, capacity);
+            }
+            return true;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (fileOut != null) {
+                fileOut.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writing) {
+                writing = false;
+                if (fileOut != null) {
+                    fileOut.close();
+                    fileOut = null;
+                }
+            }
+        }
+    }
+
+} // end class file SpillBuffer.java
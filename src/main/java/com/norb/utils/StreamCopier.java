@@ -1,71 +1,902 @@
-/* Program:     Extensible Markup Language (XML) Schema-based Binary
- *              Compression (XSBC)
- *
- * Author(s):   Elliotte Rusty Harold, Terry Norbraten
- *
- * Created on:  Unknown, 1999
- * Revised:     June 23, 2005
- *
- * File:        StreamCopier.java
- *
- * Compiler:    JDK1.6
- * O/S:         Windows XP Home Ed. (SP2)
- *
- * Description: Class that copies data between two streams as quickly as
- *              possible.  The copy method reads from the input stream and
- *              writes onto the output stream until the input stream is
- *              exhausted.
- *
- * Information: Borrowed from Java I/O by Elliotte Rusty Harold, Copyright 1999
- *              O'Reilly & Associates, Inc.
- */
-package com.norb.utils;
-
-// Standard library imports
-import java.io.InputStream;
-import java.io.IOException;
-import java.io.OutputStream;
-
-// Application specific local imports
-
-/**
- * Class that copies data between two streams as quickly as possible.  The copy
- * method reads from the input stream and writes onto the output stream until
- * the input stream is exhausted.
- * @version $Id: StreamCopier.java,v 1.4 2008/05/03 19:06:37 tnorbraten Exp $
- *<p>
- *   <b>History:</b>
- *   <pre><b>
- *     Date:     June 23, 2005
- *     Time:     1055:27
- *     Author:   <a href="mailto:tdnorbra@nps.edu?subject=com.norb.utils.StreamCopier">Terry D. Norbraten</a>
- *     Comments: Initial
- *   </b></pre>
- *</p>
- *
- * @author Elliotte Rusty Harold
- */
-public class StreamCopier {
-
-   /** A 1024 byte buffer is used to try to make the reads efficient
-     * @param in an InputStream to read from
-     * @param out an OutputStream to write to
-     * @throws IOException
-     */
-   public static void copy(InputStream in, OutputStream out) throws IOException {
-
-      /* Do not allow other threads to read from the input or write to the
-       * output while copying is taking place.
-       */
-       synchronized(in) {
-         synchronized(out) {
-            byte[] buffer = new byte[1024];
-            int bytesRead;
-            while ((bytesRead = in.read(buffer)) >= 0) {
-               out.write(buffer, 0, bytesRead);
-            }
-         }
-      }
-   }
-
-} // end class file StreamCopier.java
\ No newline at end of file
+/* Program:     Extensible Markup Language (XML) Schema-based Binary
+ *              Compression (XSBC)
+ *
+ * Author(s):   Elliotte Rusty Harold, Terry Norbraten
+ *
+ * Created on:  Unknown, 1999
+ * Revised:     June 23, 2005
+ *
+ * File:        StreamCopier.java
+ *
+ * Compiler:    JDK1.6
+ * O/S:         Windows XP Home Ed. (SP2)
+ *
+ * Description: Class that copies data between two streams as quickly as
+ *              possible.  The copy method reads from the input stream and
+ *              writes onto the output stream until the input stream is
+ *              exhausted.
+ *
+ * Information: Borrowed from Java I/O by Elliotte Rusty Harold, Copyright 1999
+ *              O'Reilly & Associates, Inc.
+ */
+package com.norb.utils;
+
+// Standard library imports
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Application specific local imports
+
+/**
+ * Class that copies data between two streams as quickly as possible.  The copy
+ * method reads from the input stream and writes onto the output stream until
+ * the input stream is exhausted.
+ * @version $Id: StreamCopier.java,v 1.4 2008/05/03 19:06:37 tnorbraten Exp $
+ *<p>
+ *   <b>History:</b>
+ *   <pre><b>
+ *     Date:     June 23, 2005
+ *     Time:     1055:27
+ *     Author:   <a href="mailto:tdnorbra@nps.edu?subject=com.norb.utils.StreamCopier">Terry D. Norbraten</a>
+ *     Comments: Initial
+ *
+ *     Date:     October 18, 2026
+ *     Author:   <a href="mailto:tdnorbra@nps.edu?subject=com.norb.utils.StreamCopier">Terry D. Norbraten</a>
+ *     Comments: Zero-copy channel transfers when a file is on either end
+ *   </b></pre>
+ *</p>
+ *
+ * @author Elliotte Rusty Harold
+ */
+public class StreamCopier {
+
+   /** Largest single request handed to FileChannel.transferFrom */
+   private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+   /** Default number of buffers in flight for a pipelined copy */
+   public static final int DEFAULT_PIPELINE_DEPTH = 4;
+
+   /** 128 KB, the default uncompressed size of a parallel gzip member */
+   public static final int DEFAULT_GZIP_BLOCK = 128 * 1024;
+
+   /** Marks the end of the stream in a pipeline */
+   private static final ByteBuffer EOS = ByteBuffer.allocate(0);
+
+   /** Daemon threads for the background halves of copies */
+   private static final ExecutorService WORKERS = Executors.newCachedThreadPool(r -> {
+      Thread t = new Thread(r, "StreamCopier-worker");
+      t.setDaemon(true);
+      return t;
+   });
+
+   /** The pool shared by copies that do not supply their own */
+   private static volatile BufferPool bufferPool = new BufferPool();
+
+   /** @return the buffer pool used by copies that do not supply their own */
+   public static BufferPool getBufferPool() {
+      return bufferPool;
+   }
+
+   /** Replaces the shared buffer pool, e.g. to change the buffer size or to
+     * switch to direct buffers.
+     * @param pool the pool to be used by copies that do not supply their own
+     */
+   public static void setBufferPool(BufferPool pool) {
+      if (pool == null) {
+         throw new NullPointerException("pool");
+      }
+      bufferPool = pool;
+   }
+
+   /** A pooled buffer is used to try to make the reads efficient.  If both
+     * streams are file streams the copy is delegated to
+     * {@link #copy(ReadableByteChannel, WritableByteChannel)} so that the
+     * operating system can move the bytes without a user space buffer.
+     * @param in an InputStream to read from
+     * @param out an OutputStream to write to
+     * @return the number of bytes copied
+     * @throws IOException
+     */
+   public static long copy(InputStream in, OutputStream out) throws IOException {
+      return copy(in, out, bufferPool);
+   }
+
+   /** As {@link #copy(InputStream, OutputStream)}, borrowing the copy buffer
+     * from the given pool.  Heap pools suit stream copies best since a direct
+     * buffer has to be staged through the streams' own arrays.  Both streams
+     * are locked for the duration of the copy; use
+     * {@link #copy(InputStream, OutputStream, CopyHandle)} to avoid that.
+     * @param in an InputStream to read from
+     * @param out an OutputStream to write to
+     * @param pool the pool to borrow the copy buffer from
+     * @return the number of bytes copied
+     * @throws IOException
+     */
+   public static long copy(InputStream in, OutputStream out, BufferPool pool) throws IOException {
+
+      /* Do not allow other threads to read from the input or write to the
+       * output while copying is taking place.
+       */
+       synchronized(in) {
+         synchronized(out) {
+            if (in instanceof FileInputStream && out instanceof FileOutputStream) {
+               return copy(((FileInputStream) in).getChannel(),
+                       ((FileOutputStream) out).getChannel(), pool);
+            }
+            ByteBuffer buffer = pool.acquire();
+            try {
+               if (!buffer.hasArray()) {
+                  return pump(Channels.newChannel(in), Channels.newChannel(out), buffer, null);
+               }
+               byte[] array = buffer.array();
+               int offset = buffer.arrayOffset();
+               int length = buffer.capacity();
+               int bytesRead;
+               long count = 0L;
+               while ((bytesRead = in.read(array, offset, length)) >= 0) {
+                  out.write(array, offset, bytesRead);
+                  count += bytesRead;
+               }
+               return count;
+            } finally {
+               pool.release(buffer);
+            }
+         }
+      }
+   }
+
+   /** Copies from the current position of one channel to another until the
+     * source is exhausted.  When the source is a {@link FileChannel} the bytes
+     * are moved with {@link FileChannel#transferTo(long, long, WritableByteChannel)}
+     * (e.g. sendfile(2) to a socket), when only the target is a FileChannel
+     * {@link FileChannel#transferFrom(ReadableByteChannel, long, long)} is used,
+     * otherwise a plain buffered read/write loop.  The position of any
+     * FileChannel involved is advanced past the bytes copied.  Blocking
+     * channels are assumed.
+     * @param in a ReadableByteChannel to read from
+     * @param out a WritableByteChannel to write to
+     * @return the number of bytes copied
+     * @throws IOException
+     */
+   public static long copy(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+      return copy(in, out, bufferPool);
+   }
+
+   /** As {@link #copy(ReadableByteChannel, WritableByteChannel)}, borrowing
+     * the buffer for the fallback loop from the given pool.
+     * @param in a ReadableByteChannel to read from
+     * @param out a WritableByteChannel to write to
+     * @param pool the pool to borrow the copy buffer from
+     * @return the number of bytes copied
+     * @throws IOException
+     */
+   public static long copy(ReadableByteChannel in, WritableByteChannel out, BufferPool pool) throws IOException {
+      return transfer(in, out, pool, null);
+   }
+
+   /** Copies as {@link #copy(InputStream, OutputStream)} does, but without
+     * locking either stream, so other threads that synchronize on them (e.g.
+     * PrintStream internals) are never stalled and two copies can not
+     * deadlock.  The handle reports progress and may be used from any thread
+     * to cancel the copy.  The caller is responsible for not using the
+     * streams elsewhere until this method returns.
+     * @param in an InputStream to read from
+     * @param out an OutputStream to write to
+     * @param handle tracks progress and carries cancellation requests
+     * @return the number of bytes copied
+     * @throws IOException if either side fails, or InterruptedIOException if
+     * the copy was cancelled
+     */
+   public static long copy(InputStream in, OutputStream out, CopyHandle handle) throws IOException {
+      if (in instanceof FileInputStream && out instanceof FileOutputStream) {
+         return copy(((FileInputStream) in).getChannel(),
+                 ((FileOutputStream) out).getChannel(), handle);
+      }
+      handle.start();
+      ByteBuffer buffer = bufferPool.acquire();
+      try {
+         if (!buffer.hasArray()) {
+            return pump(Channels.newChannel(in), Channels.newChannel(out), buffer, handle);
+         }
+         long count = 0L;
+         int n;
+         while ((n = read(in, null, buffer)) >= 0) {
+            write(out, null, buffer);
+            count += n;
+            handle.advance(n);
+         }
+         return count;
+      } finally {
+         bufferPool.release(buffer);
+         handle.finish();
+      }
+   }
+
+   /** Copies without locking either stream at no more than the rate the
+     * throttle allows.  Share one throttle between copies to cap their
+     * combined rate.
+     * @param in an InputStream to read from
+     * @param out an OutputStream to write to
+     * @param throttle limits the rate of the copy
+     * @return the number of bytes copied
+     * @throws IOException
+     * @see #copy(InputStream, OutputStream, CopyHandle)
+     */
+   public static long copy(InputStream in, OutputStream out, Throttle throttle) throws IOException {
+      return copy(in, out, new CopyHandle(null, throttle));
+   }
+
+   /** Copies as {@link #copy(ReadableByteChannel, WritableByteChannel)}
+     * does, reporting progress to, and honoring cancellation from, the given
+     * handle.  Transfers are made in chunks of at most 8 MB so that a
+     * cancellation is noticed promptly.
+     * @param in a ReadableByteChannel to read from
+     * @param out a WritableByteChannel to write to
+     * @param handle tracks progress and carries cancellation requests
+     * @return the number of bytes copied
+     * @throws IOException if either side fails, or InterruptedIOException if
+     * the copy was cancelled
+     */
+   public static long copy(ReadableByteChannel in, WritableByteChannel out, CopyHandle handle) throws IOException {
+      handle.start();
+      try {
+         return transfer(in, out, bufferPool, handle);
+      } finally {
+         handle.finish();
+      }
+   }
+
+   private static long transfer(ReadableByteChannel in, WritableByteChannel out, BufferPool pool, CopyHandle handle) throws IOException {
+      long count = 0L;
+      if (in instanceof FileChannel && isSeekable((FileChannel) in)) {
+         count = transferTo((FileChannel) in, out, handle);
+
+         // Files that report no, or too small, a size (/proc, files still
+         // being appended to) are finished off by the loop below
+      } else if (out instanceof FileChannel && !(in instanceof FileChannel)
+              && isSeekable((FileChannel) out)) {
+         return transferFrom(in, (FileChannel) out, handle);
+      }
+      ByteBuffer buffer = pool.acquire();
+      try {
+         return count + pump(in, out, buffer, handle);
+      } finally {
+         pool.release(buffer);
+      }
+   }
+
+   /** Pipes, ttys and the like are FileChannels too, but have no position */
+   private static boolean isSeekable(FileChannel channel) {
+      try {
+         channel.position();
+         return true;
+      } catch (IOException e) {
+         return false;
+      }
+   }
+
+   /** Copies with the default depth of {@link #DEFAULT_PIPELINE_DEPTH}
+     * buffers from the shared pool.
+     * @param in an InputStream to read from
+     * @param out an OutputStream to write to
+     * @return the number of bytes copied
+     * @throws IOException
+     * @see #copyPipelined(InputStream, OutputStream, int, BufferPool)
+     */
+   public static long copyPipelined(InputStream in, OutputStream out) throws IOException {
+      return copyPipelined(in, out, DEFAULT_PIPELINE_DEPTH, bufferPool);
+   }
+
+   /** Copies with reads and writes overlapped.  A background reader fills a
+     * small ring of buffers while the calling thread drains it to the output,
+     * so a slow source (network, decompression) and a slow sink keep each
+     * other busy instead of taking turns.  The reader waits whenever every
+     * buffer is queued for writing.  Unlike {@link #copy(InputStream,
+     * OutputStream)} neither stream is locked; they must not be used by
+     * anyone else until this method returns.
+     * @param in an InputStream to read from
+     * @param out an OutputStream to write to
+     * @param depth the number of buffers in the ring, at least 2
+     * @param pool the pool to borrow the ring's buffers from
+     * @return the number of bytes copied
+     * @throws IOException if either side fails, or InterruptedIOException if
+     * the calling thread is interrupted
+     */
+   public static long copyPipelined(final InputStream in, OutputStream out, int depth, BufferPool pool) throws IOException {
+      if (depth < 2) {
+         throw new IllegalArgumentException("depth must be at least 2");
+      }
+      final BlockingQueue<ByteBuffer> empty = new ArrayBlockingQueue<>(depth);
+      final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(depth + 1);
+      for (int i = 0; i < depth; i++) {
+         empty.add(pool.acquire());
+      }
+      final ReadableByteChannel source = pool.isDirect() ? Channels.newChannel(in) : null;
+      final WritableByteChannel sink = pool.isDirect() ? Channels.newChannel(out) : null;
+
+      Future<Void> reader = WORKERS.submit(() -> {
+         try {
+            ByteBuffer buffer;
+            while (read(in, source, buffer = empty.take()) >= 0) {
+               full.put(buffer);
+            }
+            empty.add(buffer);
+         } finally {
+
+            // Room for this is reserved, so it never blocks
+            full.add(EOS);
+         }
+         return null;
+      });
+
+      long count = 0L;
+      boolean done = false;
+      try {
+         ByteBuffer buffer;
+         while ((buffer = full.take()) != EOS) {
+            count += buffer.remaining();
+            write(out, sink, buffer);
+            empty.put(buffer);
+         }
+         reader.get();
+         done = true;
+         return count;
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Pipelined copy interrupted");
+      } catch (ExecutionException ex) {
+         throw asIOException(ex.getCause());
+      } finally {
+         if (!done) {
+            reader.cancel(true);
+         }
+         List<ByteBuffer> buffers = new ArrayList<>(depth);
+         empty.drainTo(buffers);
+         full.drainTo(buffers);
+         for (ByteBuffer buffer : buffers) {
+            pool.release(buffer);
+         }
+      }
+   }
+
+   /** Copies while computing one or more digests of the bytes as they pass
+     * through, saving a second read of the data for integrity checks.  Neither
+     * stream is locked.
+     * @param in an InputStream to read from
+     * @param out an OutputStream to write to
+     * @param algorithms "CRC32C", "CRC32", "Adler32" or any
+     * {@link MessageDigest} algorithm such as "SHA-256"
+     * @return the number of bytes copied and the requested digests
+     * @throws IOException
+     * @throws IllegalArgumentException if an algorithm is not available
+     */
+   public static DigestResult copyWithDigests(InputStream in, OutputStream out, String... algorithms) throws IOException {
+      Digester digester = new Digester(algorithms);
+      ByteBuffer buffer = bufferPool.acquire();
+      try {
+         WritableByteChannel sink = buffer.hasArray() ? null : Channels.newChannel(out);
+         ReadableByteChannel source = buffer.hasArray() ? null : Channels.newChannel(in);
+         long count = 0L;
+         int n;
+         while ((n = read(in, source, buffer)) >= 0) {
+            digester.update(buffer);
+            write(out, sink, buffer);
+            count += n;
+         }
+         return digester.result(count);
+      } finally {
+         bufferPool.release(buffer);
+      }
+   }
+
+   /** Copies as {@link #copyWithDigests(InputStream, OutputStream, String...)}
+     * does and then checks the digest.  The output has already been written
+     * when a mismatch is detected, so the caller should discard it.
+     * @param in an InputStream to read from
+     * @param out an OutputStream to write to
+     * @param algorithm the algorithm of the expected digest
+     * @param expected the digest the data should have
+     * @return the number of bytes copied and the digest
+     * @throws IOException if the copy fails or the digest does not match
+     */
+   public static DigestResult copyVerified(InputStream in, OutputStream out, String algorithm, byte[] expected) throws IOException {
+      DigestResult result = copyWithDigests(in, out, algorithm);
+      if (!result.matches(algorithm, expected)) {
+         throw new IOException(algorithm + " mismatch: expected " + DigestResult.toHex(expected)
+                 + " but copied " + result.getHexDigest(algorithm));
+      }
+      return result;
+   }
+
+   /** Compresses a stream on the fly into gzip format.  The output is
+     * finished but left open.
+     * @param in an InputStream of uncompressed data
+     * @param out an OutputStream to receive gzip data
+     * @return the number of uncompressed bytes read
+     * @throws IOException
+     */
+   public static long copyGzip(InputStream in, OutputStream out) throws IOException {
+      GZIPOutputStream gzip = new GZIPOutputStream(out, bufferPool.getBufferSize());
+      long count = copy(in, gzip, new CopyHandle());
+      gzip.finish();
+      return count;
+   }
+
+   /** Decompresses gzip data on the fly, including multi member streams such
+     * as those written by {@link #copyGzipParallel(InputStream, OutputStream, int, int)}.
+     * @param in an InputStream of gzip data
+     * @param out an OutputStream to receive the uncompressed data
+     * @return the number of uncompressed bytes written
+     * @throws IOException
+     */
+   public static long copyGunzip(InputStream in, OutputStream out) throws IOException {
+      return copy(new GZIPInputStream(in, bufferPool.getBufferSize()), out, new CopyHandle());
+   }
+
+   /** Compresses with one block of 128 KB per member on as many threads as
+     * there are processors.
+     * @param in an InputStream of uncompressed data
+     * @param out an OutputStream to receive gzip data
+     * @return the number of uncompressed bytes read
+     * @throws IOException
+     * @see #copyGzipParallel(InputStream, OutputStream, int, int)
+     */
+   public static long copyGzipParallel(InputStream in, OutputStream out) throws IOException {
+      return copyGzipParallel(in, out, DEFAULT_GZIP_BLOCK, Runtime.getRuntime().availableProcessors());
+   }
+
+   /** Compresses a stream on the fly into gzip format, pigz style.  The input
+     * is cut into blocks that are deflated concurrently, each into its own
+     * gzip member, and the members are written in input order.  The result is
+     * a standard multi member gzip stream that any gunzip, and
+     * {@link GZIPInputStream}, reads back as one.  Compression is slightly
+     * worse than a single stream since every block starts with an empty
+     * dictionary.  The output is left open.
+     * @param in an InputStream of uncompressed data
+     * @param out an OutputStream to receive gzip data
+     * @param blockSize the number of uncompressed bytes per member
+     * @param parallelism the number of blocks compressed at once
+     * @return the number of uncompressed bytes read
+     * @throws IOException
+     */
+   public static long copyGzipParallel(InputStream in, OutputStream out, int blockSize, int parallelism) throws IOException {
+      if (blockSize <= 0 || parallelism <= 0) {
+         throw new IllegalArgumentException("blockSize and parallelism must be positive");
+      }
+      ExecutorService deflaters = Executors.newFixedThreadPool(parallelism, r -> {
+         Thread t = new Thread(r, "StreamCopier-deflater");
+         t.setDaemon(true);
+         return t;
+      });
+      Deque<Future<byte[]>> pending = new ArrayDeque<>();
+      long count = 0L;
+      try {
+         while (true) {
+            final byte[] block = new byte[blockSize];
+            final int n = in.readNBytes(block, 0, blockSize);
+            if (n == 0 && count > 0L) {
+               break;
+            }
+            count += n;
+            if (pending.size() == 2 * parallelism) {
+               out.write(pending.removeFirst().get());
+            }
+            pending.addLast(deflaters.submit(() -> gzip(block, n)));
+            if (n < blockSize) {
+               break;
+            }
+         }
+         while (!pending.isEmpty()) {
+            out.write(pending.removeFirst().get());
+         }
+         return count;
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Parallel gzip interrupted");
+      } catch (ExecutionException ex) {
+         throw asIOException(ex.getCause());
+      } finally {
+         deflaters.shutdownNow();
+      }
+   }
+
+   /** @return one complete gzip member holding the first n bytes of block */
+   private static byte[] gzip(byte[] block, int n) throws IOException {
+      ByteArrayOutputStream member = new ByteArrayOutputStream(n / 2 + 64);
+      try (GZIPOutputStream gzip = new GZIPOutputStream(member)) {
+         gzip.write(block, 0, n);
+      }
+      return member.toByteArray();
+   }
+
+   /** Copies one input to several outputs in a single pass, writing each
+     * buffer to every output in turn.  No stream is locked.
+     * @param in an InputStream to read from
+     * @param outs the OutputStreams to write to
+     * @return the number of bytes read, and written to each output
+     * @throws IOException
+     */
+   public static long tee(InputStream in, OutputStream... outs) throws IOException {
+      ByteBuffer buffer = bufferPool.acquire();
+      try {
+         ReadableByteChannel source = buffer.hasArray() ? null : Channels.newChannel(in);
+         WritableByteChannel[] sinks = new WritableByteChannel[outs.length];
+         for (int i = 0; i < outs.length && !buffer.hasArray(); i++) {
+            sinks[i] = Channels.newChannel(outs[i]);
+         }
+         long count = 0L;
+         int n;
+         while ((n = read(in, source, buffer)) >= 0) {
+            for (int i = 0; i < outs.length; i++) {
+               write(outs[i], sinks[i], buffer.duplicate());
+            }
+            count += n;
+         }
+         return count;
+      } finally {
+         bufferPool.release(buffer);
+      }
+   }
+
+   /** Copies one input to several outputs in a single pass with each output
+     * written by its own background thread, so a slow output does not hold up
+     * the others until it falls <code>depth</code> buffers behind.  Buffers
+     * are shared by all outputs and return to the pool once every output has
+     * written them.  If an output fails the others still receive all of the
+     * data, and the first failure is thrown afterwards.  Should an output's
+     * writer stop altogether, e.g. if it is cancelled, reading stops at once
+     * since nothing could drain that output's queue.  No stream is locked.
+     * @param in an InputStream to read from
+     * @param depth how many buffers each output may lag behind the input
+     * @param outs the OutputStreams to write to
+     * @return the number of bytes read, and written to each output
+     * @throws IOException
+     */
+   public static long teeParallel(InputStream in, int depth, OutputStream... outs) throws IOException {
+      if (depth < 1) {
+         throw new IllegalArgumentException("depth must be positive");
+      }
+      final BufferPool pool = bufferPool;
+      final Chunk end = new Chunk(EOS, 0, pool);
+      List<BlockingQueue<Chunk>> queues = new ArrayList<>(outs.length);
+      List<Future<Void>> writers = new ArrayList<>(outs.length);
+      for (final OutputStream out : outs) {
+         final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(depth);
+         queues.add(queue);
+         writers.add(WORKERS.submit(() -> {
+            WritableByteChannel sink = pool.isDirect() ? Channels.newChannel(out) : null;
+            Throwable failure = null;
+            Chunk chunk;
+            while ((chunk = queue.take()) != end) {
+               if (failure == null) {
+
+                  // Any failure, checked or not, must leave this writer
+                  // draining its queue or the reader would block on it
+                  try {
+                     write(out, sink, chunk.buffer.duplicate());
+                  } catch (Throwable ex) {
+                     failure = ex;
+                  }
+               }
+               chunk.release();
+            }
+            if (failure instanceof Exception) {
+               throw (Exception) failure;
+            }
+            if (failure != null) {
+               throw (Error) failure;
+            }
+            return null;
+         }));
+      }
+
+      long count = 0L;
+      boolean cancelled = false;
+      try {
+         ReadableByteChannel source = pool.isDirect() ? Channels.newChannel(in) : null;
+         while (true) {
+            ByteBuffer buffer = pool.acquire();
+            int n = read(in, source, buffer);
+            if (n < 0) {
+               pool.release(buffer);
+               break;
+            }
+            count += n;
+            Chunk chunk = new Chunk(buffer, outs.length, pool);
+            for (int i = 0; i < outs.length; i++) {
+               while (!queues.get(i).offer(chunk, 100L, TimeUnit.MILLISECONDS)) {
+                  if (writers.get(i).isDone()) {
+                     cancelled = true;
+                     for (Future<Void> writer : writers) {
+                        writer.cancel(true);
+                     }
+                     throw stopped(writers.get(i));
+                  }
+               }
+            }
+         }
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+         cancelled = true;
+         for (Future<Void> writer : writers) {
+            writer.cancel(true);
+         }
+         throw new InterruptedIOException("Tee interrupted");
+      } finally {
+
+         // Writers drain their queues even after failing, so this completes
+         if (!cancelled) {
+            for (BlockingQueue<Chunk> queue : queues) {
+               putUninterruptibly(queue, end);
+            }
+         }
+      }
+      try {
+         for (Future<Void> writer : writers) {
+            writer.get();
+         }
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Tee interrupted");
+      } catch (ExecutionException ex) {
+         throw asIOException(ex.getCause());
+      }
+      return count;
+   }
+
+   /** @return why a tee writer stopped before it was told to */
+   private static IOException stopped(Future<Void> writer) {
+      try {
+         writer.get();
+      } catch (ExecutionException ex) {
+         return asIOException(ex.getCause());
+      } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+      } catch (CancellationException ex) {
+         // Stopped without a failure of its own
+      }
+      return new IOException("Tee output stopped before the end of input");
+   }
+
+   private static <T> void putUninterruptibly(BlockingQueue<T> queue, T element) {
+      boolean interrupted = false;
+      while (true) {
+         try {
+            queue.put(element);
+            break;
+         } catch (InterruptedException ex) {
+            interrupted = true;
+         }
+      }
+      if (interrupted) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /** Copies several inputs, one after the other, to a single output without
+     * any intermediate files.  No stream is locked.
+     * @param out an OutputStream to write to
+     * @param ins the InputStreams to read from, in order
+     * @return the total number of bytes copied
+     * @throws IOException
+     */
+   public static long concat(OutputStream out, InputStream... ins) throws IOException {
+      long count = 0L;
+      for (InputStream in : ins) {
+         count += copy(in, out, new CopyHandle());
+      }
+      return count;
+   }
+
+   /** Reads once into a cleared buffer and flips it for writing
+     * @return the number of bytes read, or -1 at end of stream
+     */
+   private static int read(InputStream in, ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+      int n;
+      buffer.clear();
+      if (buffer.hasArray()) {
+         n = in.read(buffer.array(), buffer.arrayOffset(), buffer.remaining());
+         if (n > 0) {
+            buffer.position(n);
+         }
+      } else {
+         n = channel.read(buffer);
+      }
+      buffer.flip();
+      return n;
+   }
+
+   /** Writes out the remaining bytes of a buffer */
+   private static void write(OutputStream out, WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+      if (buffer.hasArray()) {
+         out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+         buffer.position(buffer.limit());
+      } else {
+         while (buffer.hasRemaining()) {
+            channel.write(buffer);
+         }
+      }
+   }
+
+   /** Unwraps the cause of a failed background task, rethrowing unchecked ones */
+   static IOException asIOException(Throwable cause) {
+      if (cause instanceof IOException) {
+         return (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+         throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+         throw (Error) cause;
+      }
+      return new IOException(cause);
+   }
+
+   private static long pump(ReadableByteChannel in, WritableByteChannel out, ByteBuffer buffer, CopyHandle handle) throws IOException {
+      long count = 0L;
+      int n;
+      buffer.clear();
+      while ((n = in.read(buffer)) >= 0) {
+         buffer.flip();
+         while (buffer.hasRemaining()) {
+            out.write(buffer);
+         }
+         buffer.clear();
+         count += n;
+         if (handle != null) {
+            handle.advance(n);
+         }
+      }
+      return count;
+   }
+
+   private static long transferTo(FileChannel in, WritableByteChannel out, CopyHandle handle) throws IOException {
+      long position = in.position();
+      long size = in.size();
+      long count = 0L;
+      long n;
+      try {
+         long chunk = handle == null ? TRANSFER_CHUNK : handle.chunk(TRANSFER_CHUNK);
+         while (position < size && (n = in.transferTo(position, Math.min(size - position, chunk), out)) > 0) {
+            position += n;
+            count += n;
+            if (handle != null) {
+               handle.advance(n);
+            }
+         }
+      } finally {
+         in.position(position);
+      }
+      return count;
+   }
+
+   private static long transferFrom(ReadableByteChannel in, FileChannel out, CopyHandle handle) throws IOException {
+      long position = out.position();
+      long count = 0L;
+      long n;
+      try {
+         long chunk = handle == null ? TRANSFER_CHUNK : handle.chunk(TRANSFER_CHUNK);
+
+         // A blocking source only comes up short at end of stream
+         while ((n = out.transferFrom(in, position, chunk)) > 0) {
+            position += n;
+            count += n;
+            if (handle != null) {
+               handle.advance(n);
+            }
+         }
+      } finally {
+         out.position(position);
+      }
+      return count;
+   }
+
+   /** A buffer shared by the outputs of a parallel tee */
+   private static class Chunk {
+
+      final ByteBuffer buffer;
+      private final AtomicInteger readers;
+      private final BufferPool pool;
+
+      Chunk(ByteBuffer buffer, int readers, BufferPool pool) {
+         this.buffer = buffer;
+         this.readers = new AtomicInteger(readers);
+         this.pool = pool;
+      }
+
+      /** Returns the buffer to the pool after the last output is done */
+      void release() {
+         if (readers.decrementAndGet() == 0) {
+            pool.release(buffer);
+         }
+      }
+   }
+
+   /** Feeds the same bytes to any mix of checksums and message digests */
+   static class Digester {
+
+      private final Map<String, Object> digests = new LinkedHashMap<>();
+
+      Digester(String... algorithms) {
+         for (String algorithm : algorithms) {
+            digests.put(algorithm, newDigest(algorithm));
+         }
+      }
+
+      private static Object newDigest(String algorithm) {
+         switch (algorithm.toUpperCase()) {
+            case "CRC32C":
+               return new CRC32C();
+            case "CRC32":
+               return new CRC32();
+            case "ADLER32":
+               return new Adler32();
+            default:
+               try {
+                  return MessageDigest.getInstance(algorithm);
+               } catch (NoSuchAlgorithmException ex) {
+                  throw new IllegalArgumentException("Unknown digest algorithm: " + algorithm, ex);
+               }
+         }
+      }
+
+      /** Digests the remaining bytes of a buffer without moving its position */
+      void update(ByteBuffer buffer) {
+         for (Object digest : digests.values()) {
+            if (digest instanceof Checksum) {
+               ((Checksum) digest).update(buffer.duplicate());
+            } else {
+               ((MessageDigest) digest).update(buffer.duplicate());
+            }
+         }
+      }
+
+      DigestResult result(long count) {
+         Map<String, byte[]> values = new LinkedHashMap<>();
+         for (Map.Entry<String, Object> entry : digests.entrySet()) {
+            Object digest = entry.getValue();
+            if (digest instanceof Checksum) {
+               int value = (int) ((Checksum) digest).getValue();
+               values.put(entry.getKey(), ByteBuffer.allocate(4).putInt(value).array());
+            } else {
+               values.put(entry.getKey(), ((MessageDigest) digest).digest());
+            }
+         }
+         return new DigestResult(count, values);
+      }
+   }
+
+} // end class file StreamCopier.java
@@ -1,6 +1,20 @@
 package com.norb.utils;
 
 import java.io.*;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.logging.log4j.Logger;
 
@@ -51,6 +65,20 @@ public class TempFileManager {
      */
     public static File createTempFile(String prefix, String suffix)
             throws IOException {
+        // Generate a temp file for the user in your temp directory
+        // and return it.
+        return File.createTempFile(prefix, suffix, getTmpDir());
+    }
+
+    /**
+     *  Creates the temp directory for this run on first use.  Synchronized so
+     *  that concurrent first callers, e.g. threads borrowing from the scratch
+     *  file pool, share one directory rather than each locking its own.
+     *
+     * @return               the temp directory for this run
+     * @throws  IOException  if the directory could not be created
+     */
+    private static synchronized File getTmpDir() throws IOException {
         // Check to see if you have already initialized a temp directory
         // for this class.
         if (sTmpDir == null) {
@@ -83,10 +111,7 @@ public class TempFileManager {
 
             sTmpDir = tmpDir;
         }
-
-        // Generate a temp file for the user in your temp directory
-        // and return it.
-        return File.createTempFile(prefix, suffix, sTmpDir);
+        return sTmpDir;
     }
 
     /**
@@ -96,87 +121,111 @@ public class TempFileManager {
      * @param  args  command line arguments are currently not supported
      */
     public static void main(String[] args) {
-        // Although the JVM will load the class in order to
-        // run the main method, this gives a little clarity to
-        // what is happening and why we want the main method.
+        // Loading the class starts the cleanup in the background, so wait
+        // for it to finish before the JVM exits.
         try {
-            // This will load the TempFileManager, which will
-            // cause the static block to execute, cleaning
-            // any old temp files.
-            Class.forName(TempFileManager.class.getName());
-        } catch (ClassNotFoundException ex) {
+            getCleanupFuture().get();
+            LOG.info("Reclaimed {} directories, {} bytes",
+                    getDirectoriesReclaimed(), getBytesReclaimed());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
             LOG.error(ex);
-//            ex.printStackTrace();
+        } catch (ExecutionException ex) {
+            LOG.error(ex.getCause());
         }
     }
 
     /**
-     *  Deletes all of the files in the given directory, recursing into any sub
-     *  directories found. Also deletes the root directory.
+     *  The cleanup of temp directories left by earlier runs starts in the
+     *  background when this class is loaded.  Callers that need it finished,
+     *  e.g. before measuring free space, can wait on the returned future.
      *
-     * @param  rootDir       the root directory to be recursively deleted
-     * @throws  IOException  if any file or directory could not be deleted
+     * @return  completes once every stale temp directory has been dealt with
      */
-    private static void recursiveDelete(File rootDir) throws IOException {
-        // Select all the files
-        File[] files = rootDir.listFiles();
-        for (File file : files) {
-
-            // If the file is a directory, we will
-            // recursively call delete on it.
-            if (file.isDirectory()) {
-                recursiveDelete(file);
-            } else {
-                // It is just a file so we are safe to
-                // delete it
-                if (!file.delete()) {
-                    throw new IOException("Could not delete: " + file.getAbsolutePath());
-                }
-            }
-        }
+    public static Future<Void> getCleanupFuture() {
+        return CLEANUP;
+    }
 
-        // Finally, delete the root directory now
-        // that all of the files in the directory have
-        // been properly deleted.
-        if (!rootDir.delete()) {
-            throw new IOException("Could not delete: " + rootDir.getAbsolutePath());
-        }
+    /**
+     *  @return  the number of stale temp directories deleted so far
+     */
+    public static long getDirectoriesReclaimed() {
+        return DIRS_RECLAIMED.get();
     }
 
     /**
-     *  The prefix for the temp directory in the system temp directory
+     *  @return  the number of bytes freed by deleting stale temp files so far
      */
-    private final static String TEMP_DIR_PREFIX = "tmp-mgr-";
+    public static long getBytesReclaimed() {
+        return BYTES_RECLAIMED.get();
+    }
+
     /**
-     *  The temp directory to generate all files in
+     *  Code that churns through many short lived temp files should borrow them
+     *  from this shared pool, and give them back when done, rather than call
+     *  {@link #createTempFile(java.lang.String, java.lang.String)} each time.
+     *
+     * @return  the shared pool of scratch files in this manager's directory
      */
-    private static File sTmpDir = null;
+    public static ScratchFilePool getScratchFilePool() {
+        return SCRATCH;
+    }
 
     /**
-     *  Static block used to clean up any old temp directories found -- the JVM
-     *  will run this block when a class loader loads the class.
+     *  Deletes all of the files in the given directory, recursing into any sub
+     *  directories found. Also deletes the root directory.
+     *
+     * @param  rootDir       the root directory to be recursively deleted
+     * @throws  IOException  if any file or directory could not be deleted
      */
-    static {
+    private static void recursiveDelete(Path rootDir) throws IOException {
+        Files.walkFileTree(rootDir, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                // It is just a file so we are safe to delete it
+                Files.delete(file);
+                BYTES_RECLAIMED.addAndGet(attrs.size());
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                // Finally, delete the directory now that all of the files in
+                // it have been properly deleted.
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        DIRS_RECLAIMED.incrementAndGet();
+    }
+
+    /**
+     *  Lists the system temp directory and deletes, concurrently, every temp
+     *  directory of ours that is no longer locked
+     */
+    private static void cleanup() {
         // Clean up any old temp directories by listing
         // all of the files, using a filter that will
         // return only directories that start with your
         // prefix.
-        FileFilter tmpDirFilter =
-                new FileFilter() {
-
-                    public boolean accept(File pathname) {
-                        return (pathname.isDirectory() &&
-                                pathname.getName().startsWith(TEMP_DIR_PREFIX));
-                    }
-                };
+        FileFilter tmpDirFilter = pathname -> pathname.isDirectory()
+                && pathname.getName().startsWith(TEMP_DIR_PREFIX);
 
         // Get the system temp directory and filter the files.
         String tmpDirName = System.getProperty("java.io.tmpdir");
         File tmpDir = new File(tmpDirName);
         File[] tmpFiles = tmpDir.listFiles(tmpDirFilter);
+        if (tmpFiles == null) {
+            return;
+        }
 
         // Find all the files that do not have a lock by
         // checking if the lock file exists.
+        List<CompletableFuture<Void>> deletes = new ArrayList<>();
         for (File tmpFile : tmpFiles) {
 
             // Create a file to represent the lock and test.
@@ -185,25 +234,76 @@ public class TempFileManager {
                 // Delete the contents of the directory since
                 // it is no longer locked.
                 LOG.debug("Deleting old temp directory " + tmpFile);
-
-                try {
-                    recursiveDelete(tmpFile);
-                } catch (IOException ex) {
-                    // Use the logger at a fine level since not being able to delete
-                    // the temp directory should not stop the application
-                    // from performing correctly. However, if the application
-                    // generates a lot of temp files, this could become
-                    // a disk space problem and the level should be raised.
-                    LOG.error("Unable to delete " + tmpFile.getAbsolutePath());
-
-                    // Print the exception.
-                    ByteArrayOutputStream ostream = new ByteArrayOutputStream();
-                    ex.printStackTrace(new PrintStream(ostream));
-
-                    LOG.error(ostream.toString());
-                }
+                deletes.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        recursiveDelete(tmpFile.toPath());
+                    } catch (IOException ex) {
+                        // Use the logger at a fine level since not being able to delete
+                        // the temp directory should not stop the application
+                        // from performing correctly. However, if the application
+                        // generates a lot of temp files, this could become
+                        // a disk space problem and the level should be raised.
+                        LOG.error("Unable to delete " + tmpFile.getAbsolutePath(), ex);
+                    }
+                }, CLEANERS));
             }
         }
+        CompletableFuture.allOf(deletes.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     *  The prefix for the temp directory in the system temp directory
+     */
+    private final static String TEMP_DIR_PREFIX = "tmp-mgr-";
+    /**
+     *  The temp directory to generate all files in
+     */
+    private static File sTmpDir = null;
+
+    /**
+     *  The shared pool of reusable scratch files
+     */
+    private static final ScratchFilePool SCRATCH = new ScratchFilePool();
+
+    /**
+     *  Counts of what the cleanup has reclaimed
+     */
+    private static final AtomicLong DIRS_RECLAIMED = new AtomicLong();
+    private static final AtomicLong BYTES_RECLAIMED = new AtomicLong();
+
+    /**
+     *  Daemon threads that delete old temp directories in parallel; at least
+     *  two, since the sweep itself waits on the deletes it hands out.  They
+     *  are only needed at startup, so they time out once idle.
+     */
+    private static final ThreadPoolExecutor CLEANERS = newCleaners();
+
+    /**
+     *  Clean up any old temp directories found in the background, so that
+     *  loading this class, and so the first createTempFile call, never waits
+     *  on it -- the JVM will run this when a class loader loads the class.
+     */
+    private static final CompletableFuture<Void> CLEANUP = sweep();
+
+    private static ThreadPoolExecutor newCleaners() {
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        ThreadPoolExecutor cleaners = new ThreadPoolExecutor(threads, threads,
+                5L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "TempFileManager-cleanup");
+                    t.setDaemon(true);
+                    return t;
+                });
+        cleaners.allowCoreThreadTimeOut(true);
+        return cleaners;
+    }
+
+    /**
+     *  Starts a sweep of the system temp directory for stale temp directories
+     *
+     * @return  completes once the sweep is done
+     */
+    static CompletableFuture<Void> sweep() {
+        return CompletableFuture.runAsync(TempFileManager::cleanup, CLEANERS);
     }
 
-} // end class file TempFileManager.java
\ No newline at end of file
+} // end class file TempFileManager.java
\ No newline at end of file
@@ -0,0 +1,140 @@
+/*
+Copyright (c) 1995-2026 held by the author(s).  All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions
+are met:
+
+    * Redistributions of source code must retain the above copyright
+      notice, this list of conditions and the following disclaimer.
+    * Redistributions in binary form must reproduce the above copyright
+      notice, this list of conditions and the following disclaimer
+      in the documentation and/or other materials provided with the
+      distribution.
+    * Neither the names of the Naval Postgraduate School (NPS)
+      Modeling Virtual Environments and Simulation (MOVES) Institute
+      (http://www.nps.edu and https://my.nps.edu/web/moves)
+      nor the names of its contributors may be used to endorse or
+      promote products derived from this software without specific
+      prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+"AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+POSSIBILITY OF SUCH DAMAGE.
+*/
+package com.norb.utils;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket that limits the rate of copies made through a
+ * {@link CopyHandle} carrying it, e.g. to keep background archival copies from
+ * starving latency sensitive writers on the same disk.  Tokens are bytes; they
+ * accrue at the configured rate up to the burst size.  A single instance may
+ * be shared by any number of concurrent copies, which then share its budget,
+ * and both the rate and the burst may be changed while copies are running.
+ *
+ * @author <a href="mailto:tdnorbra@nps.edu?subject=com.norb.utils.Throttle">Terry Norbraten, NPS MOVES</a>
+ */
+public class Throttle {
+
+    private long bytesPerSecond;
+    private long burst;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Creates a throttle allowing a burst of one second's worth of bytes
+     * @param bytesPerSecond the sustained rate
+     */
+    public Throttle(long bytesPerSecond) {
+        this(bytesPerSecond, bytesPerSecond);
+    }
+
+    /**
+     * @param bytesPerSecond the sustained rate
+     * @param burst the most bytes that may pass at once after a quiet spell
+     */
+    public Throttle(long bytesPerSecond, long burst) {
+        check(bytesPerSecond, burst);
+        this.bytesPerSecond = bytesPerSecond;
+        this.burst = burst;
+        tokens = burst;
+        lastRefill = System.nanoTime();
+    }
+
+    private static void check(long bytesPerSecond, long burst) {
+        if (bytesPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("rate and burst must be positive");
+        }
+    }
+
+    /** @return the sustained rate in bytes per second */
+    public synchronized long getRate() {
+        return bytesPerSecond;
+    }
+
+    /** @return the burst size in bytes */
+    public synchronized long getBurst() {
+        return burst;
+    }
+
+    /**
+     * Changes the limits, taking effect for the next bytes requested
+     * @param bytesPerSecond the sustained rate
+     * @param burst the most bytes that may pass at once after a quiet spell
+     */
+    public synchronized void setRate(long bytesPerSecond, long burst) {
+        check(bytesPerSecond, burst);
+        refill();
+        this.bytesPerSecond = bytesPerSecond;
+        this.burst = burst;
+        tokens = Math.min(tokens, burst);
+    }
+
+    /**
+     * Takes <code>n</code> bytes worth of tokens, sleeping until the bucket
+     * has paid off any resulting debt.  The lock is not held while sleeping,
+     * so concurrent callers queue up in proportion to what they take.
+     * @param n the number of bytes about to be, or just, transferred
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    public void acquire(long n) throws InterruptedIOException {
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            tokens -= n;
+            waitNanos = tokens >= 0 ? 0L : (long) (-tokens * 1e9 / bytesPerSecond);
+        }
+        if (waitNanos > 0L) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttled");
+            }
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * bytesPerSecond / 1e9);
+        lastRefill = now;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Throttle[bytes/s=" + bytesPerSecond + ", burst=" + burst + "]";
+    }
+
+} // end class file Throttle.java
@@ -10,7 +10,15 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
 import org.junit.After;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -42,6 +50,7 @@ public class FileIOTest {
      * @throws java.io.IOException
      */
     @Test
+    @SuppressWarnings("deprecation")
     public void testCopyFile_3args_1() throws IOException {
         System.out.println("copyFile 3 args");
         boolean close = true;
@@ -49,6 +58,121 @@ public class FileIOTest {
         assertTrue(fOut.exists());
     }
 
+    /**
+     * Test of copyFile method, of class FileIO.
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testCopyFile_binary() throws IOException {
+        System.out.println("copyFile binary");
+        byte[] data = new byte[256 * 1024];
+        new Random(7L).nextBytes(data);
+        data[10] = '\r';
+        data[11] = '\n';
+        File bin = File.createTempFile("fileio", ".bin");
+        File copy = File.createTempFile("fileio", ".copy");
+        try {
+            Files.write(bin.toPath(), data);
+            assertEquals(data.length, FileIO.copyFile(bin, copy));
+            assertArrayEquals(data, Files.readAllBytes(copy.toPath()));
+        } finally {
+            bin.delete();
+            copy.delete();
+        }
+    }
+
+    /**
+     * Test of copyFileWithDigests method, of class FileIO.
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testCopyFileWithDigests() throws IOException {
+        System.out.println("copyFileWithDigests");
+        byte[] data = "123456789".getBytes(StandardCharsets.US_ASCII);
+        File bin = File.createTempFile("fileio", ".bin");
+        File copy = File.createTempFile("fileio", ".copy");
+        try {
+            Files.write(bin.toPath(), data);
+            DigestResult result = FileIO.copyFileWithDigests(bin, copy, "CRC32C", "SHA-256");
+            assertEquals(data.length, result.getBytesCopied());
+            assertArrayEquals(data, Files.readAllBytes(copy.toPath()));
+
+            // The standard check values for "123456789"
+            assertEquals("e3069283", result.getHexDigest("CRC32C"));
+            assertEquals("15e2b0d3c33891ebb0f1ef609ec419420c20e320ce94c65fbc8c3312448eb225",
+                    result.getHexDigest("SHA-256"));
+        } finally {
+            bin.delete();
+            copy.delete();
+        }
+    }
+
+    /**
+     * Test of the copy methods copying a file onto itself, of class FileIO.
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testCopyFile_sameFile() throws IOException {
+        System.out.println("copyFile same file");
+        byte[] data = new byte[100000];
+        new Random(13L).nextBytes(data);
+        File bin = File.createTempFile("fileio", ".bin");
+        try {
+            Files.write(bin.toPath(), data);
+            File alias = new File(bin.getParentFile(), "." + File.separator + bin.getName());
+            assertEquals(data.length, FileIO.copyFile(bin, alias));
+            assertEquals(data.length, FileIO.copyFileWithDigests(bin, bin, "SHA-256").getBytesCopied());
+            assertEquals(data.length, FileIO.copyFileParallel(bin.toPath(), bin.toPath(), 4096L, 2));
+            assertEquals(data.length, FileIO.copyFileMapped(bin.toPath(), alias.toPath(), 4096L));
+            assertArrayEquals(data, Files.readAllBytes(bin.toPath()));
+        } finally {
+            bin.delete();
+        }
+    }
+
+    /**
+     * Test of copyFile method for a file that reports no size, of class FileIO.
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testCopyFile_proc() throws IOException {
+        System.out.println("copyFile /proc");
+        File proc = new File("/proc/self/status");
+        Assume.assumeTrue(proc.canRead());
+        File copy = File.createTempFile("fileio", ".copy");
+        try {
+            long count = FileIO.copyFile(proc, copy);
+            assertTrue(count > 0L);
+            assertEquals(count, copy.length());
+        } finally {
+            copy.delete();
+        }
+    }
+
+    /**
+     * Test of copyFileParallel method, of class FileIO.
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testCopyFileParallel() throws IOException {
+        System.out.println("copyFileParallel");
+        byte[] data = new byte[3 * 1024 * 1024 + 17];
+        new Random(11L).nextBytes(data);
+        File bin = File.createTempFile("fileio", ".bin");
+        File copy = File.createTempFile("fileio", ".copy");
+        try {
+            Files.write(bin.toPath(), data);
+            assertEquals(data.length, FileIO.copyFileParallel(bin.toPath(), copy.toPath(), 1024 * 1024, 3));
+            assertTrue(FileIO.contentEquals(bin.toPath(), copy.toPath()));
+            data[data.length - 1]++;
+            Files.write(bin.toPath(), data);
+            assertFalse(FileIO.contentEquals(bin.toPath(), copy.toPath()));
+        } finally {
+            bin.delete();
+            copy.delete();
+        }
+    }
+
     /**
      * Test of copyFile method, of class FileIO.
      * @throws java.io.IOException
@@ -69,8 +193,114 @@ public class FileIOTest {
     @Test
     public void testMoveFile() throws IOException {
         System.out.println("moveFile");
-        FileIO.moveFile(fOut, fIn);
+        assertEquals(FileIO.MoveStrategy.RENAME, FileIO.moveFile(fOut, fIn));
         assertTrue(fIn.exists());
+        assertFalse(fOut.exists());
+    }
+
+    /**
+     * Test of copyTree and mirror methods, of class FileIO.
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testCopyTree() throws IOException {
+        System.out.println("copyTree");
+        Path src = Files.createTempDirectory("fileio-src");
+        Path dst = Files.createTempDirectory("fileio-dst");
+        try {
+            Files.createDirectories(src.resolve("a/b"));
+            Files.write(src.resolve("one.txt"), "one".getBytes());
+            Files.write(src.resolve("a/two.txt"), "two".getBytes());
+            Files.write(src.resolve("a/b/three.txt"), "three".getBytes());
+
+            FileIO.TreeCopyStats stats = FileIO.copyTree(src, dst, 2);
+            assertEquals(3L, stats.getFiles());
+            assertEquals(11L, stats.getBytes());
+            assertTrue(FileIO.contentEquals(src.resolve("a/b/three.txt"), dst.resolve("a/b/three.txt")));
+
+            Files.write(dst.resolve("a/stale.txt"), "stale".getBytes());
+            stats = FileIO.mirror(src, dst, 2);
+            assertEquals(0L, stats.getFiles());
+            assertEquals(3L, stats.getSkipped());
+            assertEquals(1L, stats.getDeleted());
+            assertFalse(Files.exists(dst.resolve("a/stale.txt")));
+        } finally {
+            deleteTree(src);
+            deleteTree(dst);
+        }
+    }
+
+    /**
+     * Test of copyFileMapped and readMapped methods, of class FileIO.
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testCopyFileMapped() throws IOException {
+        System.out.println("copyFileMapped");
+        byte[] data = new byte[100000];
+        new Random(13L).nextBytes(data);
+        File bin = File.createTempFile("fileio", ".bin");
+        File copy = File.createTempFile("fileio", ".copy");
+        try {
+            Files.write(bin.toPath(), data);
+            assertEquals(data.length, FileIO.copyFileMapped(bin.toPath(), copy.toPath(), 4096));
+            assertTrue(FileIO.contentEquals(bin.toPath(), copy.toPath()));
+
+            long[] offsets = new long[1];
+            FileIO.readMapped(copy.toPath(), 30000, (window, offset) -> {
+                assertEquals(offsets[0], offset);
+                while (window.hasRemaining()) {
+                    assertEquals(data[(int) offsets[0]++], window.get());
+                }
+            });
+            assertEquals(data.length, offsets[0]);
+
+            // One default sized window covers the whole file
+            Files.delete(copy.toPath());
+            assertEquals(data.length, FileIO.copyFileMapped(bin.toPath(), copy.toPath()));
+            int[] windows = new int[1];
+            FileIO.readMapped(copy.toPath(), (window, offset) -> {
+                assertEquals(data.length, window.remaining());
+                windows[0]++;
+            });
+            assertEquals(1, windows[0]);
+        } finally {
+            bin.delete();
+            copy.delete();
+        }
+    }
+
+    /**
+     * Test of copyFileDelta method, of class FileIO.
+     * @throws java.io.IOException
+     */
+    @Test
+    public void testCopyFileDelta() throws IOException {
+        System.out.println("copyFileDelta");
+        byte[] data = new byte[10 * 1024];
+        new Random(17L).nextBytes(data);
+        File bin = File.createTempFile("fileio", ".bin");
+        File copy = File.createTempFile("fileio", ".copy");
+        try {
+            Files.write(bin.toPath(), data);
+            assertEquals(data.length, FileIO.copyFileDelta(bin.toPath(), copy.toPath(), 1024));
+            assertEquals(0L, FileIO.copyFileDelta(bin.toPath(), copy.toPath(), 1024));
+
+            data[5000]++;
+            Files.write(bin.toPath(), Arrays.copyOf(data, 8 * 1024));
+            assertEquals(1024L, FileIO.copyFileDelta(bin.toPath(), copy.toPath(), 1024));
+            assertTrue(FileIO.contentEquals(bin.toPath(), copy.toPath()));
+            assertEquals(0L, FileIO.copyFileDelta(bin.toPath(), copy.toPath()));
+        } finally {
+            bin.delete();
+            copy.delete();
+        }
+    }
+
+    static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
     }
 
 } // end class file FileIOTest.java
\ No newline at end of file
@@ -0,0 +1,305 @@
+package com.norb.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author <a href="mailto:tdnorbra@nps.edu?subject=com.norb.utils.FindPathTest">Terry Norbraten, NPS MOVES</a>
+ */
+public class FindPathTest extends Assert {
+
+    Path root;
+
+    public FindPathTest() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("findpath");
+        Files.createDirectories(root.resolve("src/main/java"));
+        Files.createDirectories(root.resolve("target/classes"));
+        Files.write(root.resolve("src/main/java/A.java"), "class A {}\n".getBytes());
+        Files.write(root.resolve("src/main/java/B.java"), "class B {}\n".getBytes());
+        Files.write(root.resolve("target/classes/A.class"), new byte[] {(byte) 0xca, (byte) 0xfe, 0, 0});
+        Files.write(root.resolve("ReadMe.txt"), "read me\n".getBytes());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+        root = null;
+    }
+
+    /**
+     * Test of findParallel method, of class FindPath.
+     * @throws IOException
+     */
+    @Test
+    public void testFindParallel() throws IOException {
+        System.out.println("findParallel");
+        List<Path> matches = FindPath.findParallel(root, "*.java", 4);
+        Set<Path> expected = new HashSet<>();
+        expected.add(root.resolve("src/main/java/A.java"));
+        expected.add(root.resolve("src/main/java/B.java"));
+        assertEquals(expected, new HashSet<>(matches));
+        assertEquals(2, FindPath.findParallel(root, "{java,classes}", 2).size());
+    }
+
+    /**
+     * Test of stream method, of class FindPath.
+     * @throws IOException
+     */
+    @Test
+    public void testStream() throws IOException {
+        System.out.println("stream");
+        try (Stream<Path> matches = FindPath.stream(root, "*.java")) {
+            assertEquals(2L, matches.count());
+        }
+        try (Stream<Path> matches = FindPath.stream(root, "*.class")) {
+            assertEquals(root.resolve("target/classes/A.class"), matches.findFirst().get());
+        }
+        try (Stream<Path> matches = FindPath.stream(root, "*.none")) {
+            assertFalse(matches.iterator().hasNext());
+        }
+    }
+
+    /**
+     * Test of getMatches method, of class FindPath.
+     * @throws IOException
+     */
+    @Test
+    public void testGetMatches() throws IOException {
+        System.out.println("getMatches");
+        FindPath finder = new FindPath("*.java");
+        Files.walkFileTree(root, finder);
+        assertEquals(2, finder.getMatches().size());
+        assertEquals(finder.get(), finder.getMatches().get(1));
+    }
+
+    /**
+     * Test of find method, of class PathIndex.
+     * @throws IOException
+     */
+    @Test
+    public void testPathIndex() throws IOException {
+        System.out.println("PathIndex");
+        Path indexFile = Files.createTempFile("findpath", ".idx");
+        try {
+            Files.delete(indexFile);
+            PathIndex index = PathIndex.open(root, indexFile);
+            assertTrue(Files.exists(indexFile));
+            assertEquals(2, index.find("*.java").size());
+
+            Files.write(root.resolve("src/main/java/C.java"), "class C {}\n".getBytes());
+            Files.delete(root.resolve("src/main/java/A.java"));
+            Files.setLastModifiedTime(root.resolve("src/main/java"), FileTime.fromMillis(System.currentTimeMillis() + 5000L));
+            List<Path> matches = index.find("*.java");
+            assertEquals(2, matches.size());
+            assertTrue(matches.contains(root.resolve("src/main/java/C.java").toAbsolutePath()));
+
+            PathIndex reopened = PathIndex.open(root, indexFile);
+            assertEquals(matches, reopened.find("*.java"));
+            assertEquals(index.getEntries().size(), reopened.getEntries().size());
+            for (PathIndex.Entry entry : reopened.getEntries()) {
+                assertEquals(Files.isDirectory(entry.getPath()), entry.isDirectory());
+            }
+
+            // A root missing when indexed is picked up once it exists
+            Path later = root.resolve("later");
+            PathIndex missing = PathIndex.open(later, indexFile);
+            assertTrue(missing.find("*.txt").isEmpty());
+            Files.createDirectories(later);
+            Files.write(later.resolve("L.txt"), "later\n".getBytes());
+            assertEquals(1, missing.find("*.txt").size());
+
+            try {
+                Files.createSymbolicLink(later.resolve("link.txt"), later.resolve("L.txt"));
+            } catch (UnsupportedOperationException | IOException ex) {
+                return;
+            }
+            Files.setLastModifiedTime(later, FileTime.fromMillis(System.currentTimeMillis() + 5000L));
+            missing.refresh();
+            Map<Path, FindPath.Filter.Type> types = missing.getEntries().stream()
+                    .collect(Collectors.toMap(PathIndex.Entry::getPath, PathIndex.Entry::getType));
+            assertEquals(FindPath.Filter.Type.SYMLINK, types.get(later.resolve("link.txt")));
+            assertEquals(FindPath.Filter.Type.FILE, types.get(later.resolve("L.txt")));
+            assertEquals(FindPath.Filter.Type.DIRECTORY, types.get(later));
+        } finally {
+            Files.deleteIfExists(indexFile);
+        }
+    }
+
+    /**
+     * Test of find method, of class LivePathIndex.
+     * @throws Exception
+     */
+    @Test
+    public void testLivePathIndex() throws Exception {
+        System.out.println("LivePathIndex");
+        try (LivePathIndex index = new LivePathIndex(root)) {
+            assertEquals(2, index.find("*.java").size());
+
+            Files.createDirectories(root.resolve("src/test/java"));
+            Files.write(root.resolve("src/test/java/ATest.java"), "class ATest {}\n".getBytes());
+            Files.delete(root.resolve("ReadMe.txt"));
+            long deadline = System.currentTimeMillis() + 10000L;
+            while ((index.find("*.java").size() != 3 || !index.find("*.txt").isEmpty())
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50L);
+            }
+            assertEquals(3, index.find("*.java").size());
+            assertTrue(index.find("*.txt").isEmpty());
+
+            // Removing a subtree drops everything indexed below it
+            int before = index.size();
+            Files.delete(root.resolve("target/classes/A.class"));
+            Files.delete(root.resolve("target/classes"));
+            Files.delete(root.resolve("target"));
+            deadline = System.currentTimeMillis() + 10000L;
+            while (index.get(root.resolve("target")) != null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50L);
+            }
+            assertNull(index.get(root.resolve("target")));
+            assertTrue(index.find("*.class").isEmpty());
+            assertEquals(before - 3, index.size());
+        }
+    }
+
+    /**
+     * Test of findAll method, of class FindPath.
+     * @throws IOException
+     */
+    @Test
+    public void testFindAll() throws IOException {
+        System.out.println("findAll");
+        Map<String, List<Path>> results = FindPath.findAll(root, Arrays.asList(
+                "*.java", "glob:A.*", "Read*", "classes", "regex:[AB]\\.(java|class)", "*.{txt,class}"));
+        assertEquals(2, results.get("*.java").size());
+        assertEquals(2, results.get("glob:A.*").size());
+        assertEquals(Arrays.asList(root.resolve("ReadMe.txt")), results.get("Read*"));
+        assertEquals(Arrays.asList(root.resolve("target/classes")), results.get("classes"));
+        assertEquals(3, results.get("regex:[AB]\\.(java|class)").size());
+        assertEquals(2, results.get("*.{txt,class}").size());
+
+        results = FindPath.findAll(root, Arrays.asList("*.java", "*.class", "classes"),
+                new FindPath.Filter().excludeDirs("target"));
+        assertEquals(2, results.get("*.java").size());
+        assertTrue(results.get("*.class").isEmpty());
+        assertTrue(results.get("classes").isEmpty());
+    }
+
+    /**
+     * Test of grep method, of class FindPath.
+     * @throws IOException
+     */
+    @Test
+    public void testGrep() throws IOException {
+        System.out.println("grep");
+        Queue<FindPath.Hit> hits = new ConcurrentLinkedQueue<>();
+        assertEquals(2L, FindPath.grep(root, "*", "class", 3, hits::add));
+        for (FindPath.Hit hit : hits) {
+            assertEquals(0L, hit.getOffset());
+            assertEquals(1L, hit.getLine());
+        }
+
+        // a match across the block boundary, on the third line
+        byte[] big = new byte[1024 * 1024 + 10];
+        Arrays.fill(big, (byte) 'x');
+        big[10] = '\n';
+        big[20] = '\n';
+        byte[] needle = "needle".getBytes();
+        System.arraycopy(needle, 0, big, 1024 * 1024 - 3, needle.length);
+        Files.write(root.resolve("big.log"), big);
+        hits.clear();
+        assertEquals(1L, FindPath.grep(root, "*.log", needle, 2, hits::add));
+        assertEquals(1024 * 1024 - 3, hits.peek().getOffset());
+        assertEquals(3L, hits.peek().getLine());
+    }
+
+    /**
+     * Test of searches restricted by a FindPath.Filter.
+     * @throws IOException
+     */
+    @Test
+    public void testFilter() throws IOException {
+        System.out.println("filter");
+        FindPath.Filter noTarget = new FindPath.Filter().excludeDirs("target");
+        try (Stream<Path> matches = FindPath.stream(root, "A.*", noTarget)) {
+            assertEquals(1L, matches.count());
+        }
+        assertEquals(1, FindPath.findParallel(root, "A.*", 2, noTarget).size());
+        FindPath finder = new FindPath("A.*", noTarget);
+        Files.walkFileTree(root, finder);
+        assertEquals(1, finder.getNumMatches());
+
+        FindPath.Filter shallow = new FindPath.Filter().maxDepth(2);
+        try (Stream<Path> matches = FindPath.stream(root, "*", shallow)) {
+            assertEquals(6L, matches.count());
+        }
+        assertEquals(6, FindPath.findParallel(root, "*", 3, shallow).size());
+        finder = new FindPath("*", shallow);
+        Files.walkFileTree(root, finder);
+        assertEquals(6, finder.getNumMatches());
+
+        FindPath.Filter smallFiles = new FindPath.Filter()
+                .types(FindPath.Filter.Type.FILE).size(0L, 5L);
+        try (Stream<Path> matches = FindPath.stream(root, "*", smallFiles)) {
+            assertEquals(Arrays.asList(root.resolve("target/classes/A.class")), matches.collect(Collectors.toList()));
+        }
+
+        Files.write(root.resolve("target/T.java"), "class T {}\n".getBytes());
+        assertEquals(3L, FindPath.grep(root, "*.java", "class", 2, hit -> {}));
+        assertEquals(2L, FindPath.grep(root, "*.java", "class", 2, noTarget, hit -> {}));
+    }
+
+    /**
+     * Test of find method, of class DuplicateFinder.
+     * @throws IOException
+     */
+    @Test
+    public void testDuplicateFinder() throws IOException {
+        System.out.println("DuplicateFinder");
+        byte[] big = new byte[20000];
+        new Random(23L).nextBytes(big);
+        Files.write(root.resolve("big1.bin"), big);
+        Files.write(root.resolve("src/big2.bin"), big);
+        big[10000]++;
+        Files.write(root.resolve("src/big3.bin"), big);
+        Files.write(root.resolve("target/C.java"), "class A {}\n".getBytes());
+
+        List<List<Path>> groups = DuplicateFinder.find(root, "*", null, 3);
+        assertEquals(2, groups.size());
+        assertEquals(Arrays.asList(root.resolve("big1.bin"), root.resolve("src/big2.bin")), groups.get(0));
+        assertEquals(Arrays.asList(root.resolve("src/main/java/A.java"), root.resolve("target/C.java")), groups.get(1));
+
+        // A hard link is the same file, not a duplicate of it
+        try {
+            Files.createLink(root.resolve("src/big3.link"), root.resolve("src/big3.bin"));
+        } catch (UnsupportedOperationException | IOException ex) {
+            return;
+        }
+        assertEquals(groups, DuplicateFinder.find(root, "*", null, 3));
+    }
+
+} // end class file FindPathTest.java
@@ -1,14 +1,27 @@
 package com.norb.utils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32C;
 import org.junit.After;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -49,8 +62,270 @@ public class StreamCopierTest extends Assert {
     @Test
     public void testCopy() throws IOException {
         System.out.println("copy");
-        StreamCopier.copy(in, out);
+        long count = StreamCopier.copy(in, out);
         assertTrue(fOut.exists());
+        assertEquals(fIn.length(), count);
+        assertEquals(fIn.length(), fOut.length());
+    }
+
+    /**
+     * Test of copy method for channels, of class StreamCopier.
+     * @throws IOException
+     */
+    @Test
+    public void testCopyChannels() throws IOException {
+        System.out.println("copy channels");
+        byte[] data = Files.readAllBytes(fIn.toPath());
+        long count;
+        try (FileChannel fc = FileChannel.open(fOut.toPath(), StandardOpenOption.WRITE)) {
+            count = StreamCopier.copy(Channels.newChannel(new ByteArrayInputStream(data)), fc);
+            assertEquals(count, fc.position());
+        }
+        assertEquals(data.length, count);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (FileChannel fc = FileChannel.open(fOut.toPath())) {
+            count = StreamCopier.copy(fc, Channels.newChannel(sink));
+        }
+        assertEquals(data.length, count);
+        assertArrayEquals(data, sink.toByteArray());
+    }
+
+    /**
+     * Test of copy method for file streams whose size is unknown or that
+     * can not seek, of class StreamCopier.
+     * @throws Exception
+     */
+    @Test
+    public void testCopyUnsizedFiles() throws Exception {
+        System.out.println("copy unsized files");
+        File proc = new File("/proc/self/status");
+        Assume.assumeTrue(proc.canRead());
+
+        // /proc files report a size of zero
+        long count;
+        try (InputStream pin = new FileInputStream(proc)) {
+            count = StreamCopier.copy(pin, out);
+        }
+        assertTrue(count > 0L);
+        assertEquals(count, fOut.length());
+        try (InputStream pin = new FileInputStream(proc);
+                OutputStream pout = new FileOutputStream(fOut)) {
+            count = StreamCopier.copy(pin, pout, new CopyHandle());
+        }
+        assertTrue(count > 0L);
+        assertEquals(count, fOut.length());
+
+        // A named pipe can not seek at all
+        File fifo = new File(fOut.getPath() + ".fifo");
+        fifo.delete();
+        Assume.assumeTrue(new ProcessBuilder("mkfifo", fifo.getPath()).start().waitFor() == 0);
+        try {
+            byte[] data = Files.readAllBytes(fIn.toPath());
+            Thread writer = new Thread(() -> {
+                try (OutputStream fout = new FileOutputStream(fifo)) {
+                    fout.write(data);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            writer.start();
+            try (InputStream fin = new FileInputStream(fifo);
+                    OutputStream fcopy = new FileOutputStream(fOut)) {
+                assertEquals(data.length, StreamCopier.copy(fin, fcopy));
+            }
+            writer.join();
+            assertArrayEquals(data, Files.readAllBytes(fOut.toPath()));
+        } finally {
+            fifo.delete();
+        }
+    }
+
+    /**
+     * Test of copy method with a BufferPool, of class StreamCopier.
+     * @throws IOException
+     */
+    @Test
+    public void testCopyPooled() throws IOException {
+        System.out.println("copy pooled");
+        byte[] data = Files.readAllBytes(fIn.toPath());
+        BufferPool pool = new BufferPool(4096, 2, false);
+        for (int i = 0; i < 3; i++) {
+            ByteArrayOutputStream sink = new ByteArrayOutputStream();
+            assertEquals(data.length, StreamCopier.copy(new ByteArrayInputStream(data), sink, pool));
+            assertArrayEquals(data, sink.toByteArray());
+        }
+        assertEquals(1L, pool.getMisses());
+        assertEquals(2L, pool.getHits());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    /**
+     * Test of copyPipelined method, of class StreamCopier.
+     * @throws IOException
+     */
+    @Test
+    public void testCopyPipelined() throws IOException {
+        System.out.println("copyPipelined");
+        byte[] data = new byte[1 << 20];
+        new Random(42L).nextBytes(data);
+        BufferPool pool = new BufferPool(1000, 4, false);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        assertEquals(data.length, StreamCopier.copyPipelined(new ByteArrayInputStream(data), sink, 3, pool));
+        assertArrayEquals(data, sink.toByteArray());
+        assertEquals(3, pool.getIdleCount());
+    }
+
+    /**
+     * Test of copy method with a CopyHandle, of class StreamCopier.
+     * @throws IOException
+     */
+    @Test
+    public void testCopyHandle() throws IOException {
+        System.out.println("copy with handle");
+        byte[] data = new byte[4 * BufferPool.DEFAULT_BUFFER_SIZE];
+        CopyHandle handle = new CopyHandle();
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        assertEquals(data.length, StreamCopier.copy(new ByteArrayInputStream(data), sink, handle));
+        assertEquals(data.length, handle.getBytesCopied());
+        assertTrue(handle.isDone());
+
+        final CopyHandle[] cancelling = new CopyHandle[1];
+        cancelling[0] = new CopyHandle(total -> cancelling[0].cancel());
+        try {
+            StreamCopier.copy(new ByteArrayInputStream(data), new ByteArrayOutputStream(), cancelling[0]);
+            fail("copy was not cancelled");
+        } catch (InterruptedIOException expected) {
+            assertTrue(cancelling[0].getBytesCopied() < data.length);
+        }
+    }
+
+    /**
+     * Test of copyWithDigests and copyVerified methods, of class StreamCopier.
+     * @throws Exception
+     */
+    @Test
+    public void testCopyWithDigests() throws Exception {
+        System.out.println("copyWithDigests");
+        byte[] data = new byte[200000];
+        new Random(5L).nextBytes(data);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        DigestResult result = StreamCopier.copyWithDigests(new ByteArrayInputStream(data), sink, "CRC32C", "SHA-256");
+        assertEquals(data.length, result.getBytesCopied());
+        assertArrayEquals(data, sink.toByteArray());
+        byte[] sha = MessageDigest.getInstance("SHA-256").digest(data);
+        assertArrayEquals(sha, result.getDigest("SHA-256"));
+        CRC32C crc = new CRC32C();
+        crc.update(data);
+        assertEquals(String.format("%08x", crc.getValue()), result.getHexDigest("CRC32C"));
+
+        StreamCopier.copyVerified(new ByteArrayInputStream(data), new ByteArrayOutputStream(), "SHA-256", sha);
+        sha[0]++;
+        try {
+            StreamCopier.copyVerified(new ByteArrayInputStream(data), new ByteArrayOutputStream(), "SHA-256", sha);
+            fail("mismatch not detected");
+        } catch (IOException expected) {
+        }
+    }
+
+    /**
+     * Test of copy method with a Throttle, of class StreamCopier.
+     * @throws IOException
+     */
+    @Test
+    public void testCopyThrottled() throws IOException {
+        System.out.println("copy throttled");
+        byte[] data = new byte[300 * 1024];
+        Throttle throttle = new Throttle(1024 * 1024, 100 * 1024);
+        long start = System.nanoTime();
+        assertEquals(data.length, StreamCopier.copy(new ByteArrayInputStream(data), new ByteArrayOutputStream(), throttle));
+        long millis = (System.nanoTime() - start) / 1000000L;
+
+        // 200 KB beyond the initial burst at 1 MB/s
+        assertTrue("copy took only " + millis + " ms", millis >= 150L);
+    }
+
+    /**
+     * Test of copyGzipParallel and copyGunzip methods, of class StreamCopier.
+     * @throws IOException
+     */
+    @Test
+    public void testCopyGzipParallel() throws IOException {
+        System.out.println("copyGzipParallel");
+        byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + i % 7);
+        }
+        ByteArrayOutputStream gz = new ByteArrayOutputStream();
+        assertEquals(data.length, StreamCopier.copyGzipParallel(new ByteArrayInputStream(data), gz, 8192, 3));
+        assertTrue(gz.size() < data.length / 10);
+
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        assertEquals(data.length, StreamCopier.copyGunzip(new ByteArrayInputStream(gz.toByteArray()), plain));
+        assertArrayEquals(data, plain.toByteArray());
+
+        gz.reset();
+        StreamCopier.copyGzipParallel(new ByteArrayInputStream(new byte[0]), gz, 8192, 3);
+        plain.reset();
+        assertEquals(0L, StreamCopier.copyGunzip(new ByteArrayInputStream(gz.toByteArray()), plain));
+    }
+
+    /**
+     * Test of tee, teeParallel and concat methods, of class StreamCopier.
+     * @throws IOException
+     */
+    @Test
+    public void testTeeAndConcat() throws IOException {
+        System.out.println("tee");
+        byte[] data = new byte[500000];
+        new Random(3L).nextBytes(data);
+        ByteArrayOutputStream a = new ByteArrayOutputStream();
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        assertEquals(data.length, StreamCopier.tee(new ByteArrayInputStream(data), a, b));
+        assertArrayEquals(data, a.toByteArray());
+        assertArrayEquals(data, b.toByteArray());
+
+        a.reset();
+        b.reset();
+        assertEquals(data.length, StreamCopier.teeParallel(new ByteArrayInputStream(data), 2, a, b));
+        assertArrayEquals(data, a.toByteArray());
+        assertArrayEquals(data, b.toByteArray());
+
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        assertEquals(2L * data.length, StreamCopier.concat(joined,
+                new ByteArrayInputStream(data), new ByteArrayInputStream(data)));
+        byte[] both = joined.toByteArray();
+        assertArrayEquals(data, Arrays.copyOfRange(both, data.length, both.length));
+    }
+
+    /**
+     * Test of teeParallel method with an output that fails unchecked, of
+     * class StreamCopier.
+     * @throws IOException
+     */
+    @Test(timeout = 30000L)
+    public void testTeeParallelUncheckedFailure() throws IOException {
+        System.out.println("teeParallel unchecked failure");
+        byte[] data = new byte[4 * BufferPool.DEFAULT_BUFFER_SIZE * 8];
+        new Random(5L).nextBytes(data);
+        ByteArrayOutputStream good = new ByteArrayOutputStream();
+        OutputStream bad = new OutputStream() {
+            @Override
+            public void write(int b) {
+                throw new UncheckedIOException(new IOException("sink failed"));
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                write(0);
+            }
+        };
+        try {
+            StreamCopier.teeParallel(new ByteArrayInputStream(data), 2, good, bad);
+            fail("the failing output was not reported");
+        } catch (UncheckedIOException expected) {
+            assertEquals("sink failed", expected.getCause().getMessage());
+        }
+        assertArrayEquals(data, good.toByteArray());
     }
 
 }
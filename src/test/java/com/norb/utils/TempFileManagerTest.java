@@ -0,0 +1,186 @@
+package com.norb.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author <a href="mailto:tdnorbra@nps.edu?subject=com.norb.utils.TempFileManagerTest">Terry Norbraten, NPS MOVES</a>
+ */
+public class TempFileManagerTest extends Assert {
+
+    public TempFileManagerTest() {
+    }
+
+    /**
+     * Test of getCleanupFuture and sweep methods, of class TempFileManager.
+     * @throws Exception
+     */
+    @Test
+    public void testCleanup() throws Exception {
+        System.out.println("cleanup");
+        TempFileManager.getCleanupFuture().get(30, TimeUnit.SECONDS);
+
+        // Leave an unlocked temp directory behind, as a crashed run would,
+        // then sweep again, since the class may be loaded already
+        Path stale = Files.createTempDirectory(Paths.get(System.getProperty("java.io.tmpdir")), "tmp-mgr-");
+        Files.createDirectories(stale.resolve("sub"));
+        Files.write(stale.resolve("a.tmp"), new byte[100]);
+        Files.write(stale.resolve("sub/b.tmp"), new byte[23]);
+        long dirs = TempFileManager.getDirectoriesReclaimed();
+        long bytes = TempFileManager.getBytesReclaimed();
+        TempFileManager.sweep().get(30, TimeUnit.SECONDS);
+        assertFalse(Files.exists(stale));
+        assertTrue(TempFileManager.getDirectoriesReclaimed() - dirs >= 1L);
+        assertTrue(TempFileManager.getBytesReclaimed() - bytes >= 123L);
+
+        File tmp = TempFileManager.createTempFile("test", null);
+        assertTrue(tmp.isFile());
+        assertTrue(new File(tmp.getParentFile().getPath() + ".lck").exists());
+    }
+
+    /**
+     * Test of createTempFile method from several threads at once, of class
+     * TempFileManager.
+     * @throws Exception
+     */
+    @Test
+    public void testCreateTempFileConcurrently() throws Exception {
+        System.out.println("createTempFile concurrently");
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<File>> files = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                files.add(threads.submit(() -> TempFileManager.createTempFile("test", null)));
+            }
+            Set<File> dirs = new HashSet<>();
+            for (Future<File> file : files) {
+                dirs.add(file.get().getParentFile());
+                file.get().delete();
+            }
+            assertEquals(1, dirs.size());
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    /**
+     * Test of the ScratchFilePool, shared through class TempFileManager.
+     * @throws IOException
+     */
+    @Test
+    public void testScratchFilePool() throws IOException {
+        System.out.println("scratchFilePool");
+        ScratchFilePool pool = TempFileManager.getScratchFilePool();
+        pool.close();
+        pool.resetStats();
+        File file = pool.acquire();
+        Files.write(file.toPath(), new byte[64]);
+        pool.release(file);
+        assertEquals(1, pool.getIdleCount());
+
+        File again = pool.acquire();
+        assertEquals(file, again);
+        assertEquals(0L, again.length());
+        assertEquals(1L, pool.getHits());
+        pool.release(again);
+
+        FileChannel channel = pool.acquireChannel();
+        channel.write(ByteBuffer.wrap(new byte[16]));
+        pool.release(channel);
+        assertFalse(channel.isOpen());
+        assertEquals(0L, file.length());
+        assertEquals(0, pool.getBorrowedCount());
+        assertEquals(1L, pool.getMisses());
+
+        // Files never borrowed are left alone
+        File other = TempFileManager.createTempFile("test", null);
+        Files.write(other.toPath(), new byte[8]);
+        pool.release(other);
+        assertEquals(8L, other.length());
+        pool.close();
+        assertFalse(file.exists());
+
+        try (ScratchFilePool expiring = new ScratchFilePool("test", 2, 0L)) {
+            File stale = expiring.acquire();
+            expiring.release(stale);
+            assertFalse(stale.exists());
+            assertEquals(1L, expiring.getExpired());
+        }
+    }
+
+    /**
+     * Test of the SpillBuffer, which spills to TempFileManager scratch files.
+     * @throws IOException
+     */
+    @Test
+    public void testSpillBuffer() throws IOException {
+        System.out.println("spillBuffer");
+        byte[] data = new byte[10000];
+        new Random(7L).nextBytes(data);
+
+        try (SpillBuffer small = new SpillBuffer(data.length)) {
+            try (OutputStream out = small.getOutputStream()) {
+                out.write(data, 0, 5000);
+                out.write(data, 5000, 5000);
+            }
+            assertFalse(small.isSpilled());
+            ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            assertEquals(data.length, small.writeTo(copy));
+            assertArrayEquals(data, copy.toByteArray());
+        }
+
+        try (SpillBuffer large = new SpillBuffer(4096)) {
+            try (OutputStream out = large.getOutputStream()) {
+                out.write(data[0]);
+                out.write(data, 1, data.length - 1);
+            }
+            assertTrue(large.isSpilled());
+            assertEquals(data.length, large.size());
+            try (InputStream in = large.getInputStream()) {
+                ByteArrayOutputStream copy = new ByteArrayOutputStream();
+                StreamCopier.copy(in, copy);
+                assertArrayEquals(data, copy.toByteArray());
+            }
+        }
+        assertEquals(0, TempFileManager.getScratchFilePool().getBorrowedCount());
+
+        // A reader left open must not see the next borrower's data
+        SpillBuffer first = new SpillBuffer(4);
+        try (OutputStream out = first.getOutputStream()) {
+            out.write("first buffer".getBytes());
+        }
+        InputStream stale = first.getInputStream();
+        first.close();
+        try (SpillBuffer second = new SpillBuffer(4)) {
+            try (OutputStream out = second.getOutputStream()) {
+                out.write("SECRET-OF-BUFFER-TWO".getBytes());
+            }
+            try {
+                int n = stale.read(new byte[64]);
+                fail("read " + n + " bytes after the buffer was closed");
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+}
@@ -10,9 +10,11 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
     FileIOTest.class,
+    FindPathTest.class,
     DateTimeGroupStampTest.class,
     ProjectResourcesTest.class,
     StreamCopierTest.class,
-    StreamReaderTest.class
+    StreamReaderTest.class,
+    TempFileManagerTest.class
 })
 public class UtilsTestSuite {}